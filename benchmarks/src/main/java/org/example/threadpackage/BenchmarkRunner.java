@@ -0,0 +1,31 @@
+package org.example.threadpackage;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Point d'entrée de benchmarks.jar : les options JMH de la ligne de commande sont acceptées
+ * (filtre des bancs, -p cities=318, etc.), le profileur gc est toujours actif et les résultats
+ * sont écrits en JSON dans jmh-result-&lt;étiquette&gt;.json, l'étiquette étant donnée par la
+ * propriété {@code bench.label} (par exemple le commit mesuré).
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        String label = System.getProperty("bench.label", "local");
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result-" + label + ".json")
+                .build()).run();
+    }
+}
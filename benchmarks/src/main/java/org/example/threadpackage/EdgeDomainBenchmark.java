@@ -0,0 +1,54 @@
+package org.example.threadpackage;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application d'un nouveau domaine des arcs à l'AG ({@link AG#initializeWithConnectionsBlocks}) :
+ * masque des distances, réparation et réévaluation de la population. Deux instantanés (5 % d'arcs
+ * interdits) alternent pour que chaque appel applique une nouvelle version.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EdgeDomainBenchmark {
+
+    @Param({"17", "76", "99", "124", "318"})
+    public String cities;
+
+    private AG ag;
+    private EdgeDomainStore.Snapshot[] snapshots;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        DistanceProvider distances = DistanceProvider.of(Instances.read(cities));
+        int C = distances.size();
+        EdgeDomainStore edgeDomain = new EdgeDomainStore(C);
+        SplittableRandom random = new SplittableRandom(42);
+        snapshots = new EdgeDomainStore.Snapshot[2];
+        for (int s = 0; s < snapshots.length; s++) {
+            long[] bits = edgeDomain.newBuffer();
+            for (int i = 0; i < C; i++) {
+                for (int j = 0; j < C; j++) {
+                    EdgeDomainStore.set(bits, C, i, j, i != j && random.nextInt(20) != 0);
+                }
+            }
+            snapshots[s] = edgeDomain.publish(bits);
+        }
+        ag = new AG(distances);
+        ag.runAlgorithm(1, new SharedSolution());
+    }
+
+    @Benchmark
+    public AG initializeWithConnectionsBlocks() {
+        ag.initializeWithConnectionsBlocks(snapshots[next]);
+        next ^= 1;
+        return ag;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.threadpackage;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileNotFoundException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export du domaine des arcs déclenché depuis {@link DomainExporter#afterUpBranch()} : à chaque
+ * appel, un dixième des variables succ est instancié (comme après une descente), le domaine est
+ * exporté puis l'état est restauré.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class ExportBenchmark {
+
+    @Param({"17", "76", "99", "124", "318"})
+    public String cities;
+
+    private IEnvironment environment;
+    private IntVar[] succ;
+    private int[] rows;
+    private DomainExporter exporter;
+    private EdgeDomainStore edgeDomain;
+
+    @Setup
+    public void setup() throws FileNotFoundException {
+        DistanceProvider distances = DistanceProvider.of(Instances.read(cities));
+        int C = distances.size();
+        edgeDomain = new EdgeDomainStore(C);
+        Model model = PPC.SolveTSP(C, distances, edgeDomain, new SharedSolution(), ModelOptions.defaults());
+        environment = model.getEnvironment();
+        succ = (IntVar[]) model.getHook(PPC.SUCC_HOOK);
+        exporter = new DomainExporter(succ, edgeDomain, 0L, Integer.MAX_VALUE, 0);
+        exporter.export();
+        SplittableRandom random = new SplittableRandom(42);
+        rows = new int[Math.max(1, C / 10)];
+        for (int r = 0; r < rows.length; r++) {
+            rows[r] = random.nextInt(C);
+        }
+    }
+
+    @Benchmark
+    public long export() throws ContradictionException {
+        environment.worldPush();
+        for (int row : rows) {
+            succ[row].instantiateTo(succ[row].getUB(), Cause.Null);
+        }
+        exporter.export();
+        environment.worldPop();
+        return edgeDomain.version();
+    }
+}
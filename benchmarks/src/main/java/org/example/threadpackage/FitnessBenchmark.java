@@ -0,0 +1,82 @@
+package org.example.threadpackage;
+
+import io.jenetics.util.ISeq;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Évaluation des tournées : fonction de fitness Jenetics de l'AG ({@link AG#fitness()}, une
+ * tournée d'objets Integer) et évaluation par lots du moteur primitif ({@link TourEvaluator},
+ * scalaire ou vectorielle). Le score est le temps par population de {@value #TOURS} tournées.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class FitnessBenchmark {
+
+    static final int TOURS = AG.POPULATION_SIZE;
+
+    @Param({"17", "76", "99", "124", "318"})
+    public String cities;
+
+    private Function<ISeq<Integer>, Double> fitness;
+    private ISeq<Integer>[] boxedTours;
+    private int[][] tours;
+    private long[] lengths;
+    private TourEvaluator scalar;
+    private TourEvaluator vector;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        DistanceProvider distances = DistanceProvider.of(Instances.read(cities));
+        int n = distances.size();
+        SplittableRandom random = new SplittableRandom(42);
+        tours = new int[TOURS][n];
+        boxedTours = new ISeq[TOURS];
+        for (int k = 0; k < TOURS; k++) {
+            int[] tour = tours[k];
+            for (int i = 0; i < n; i++) {
+                tour[i] = i;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = tour[i];
+                tour[i] = tour[j];
+                tour[j] = t;
+            }
+            boxedTours[k] = ISeq.of(java.util.Arrays.stream(tour).boxed().toArray(Integer[]::new));
+        }
+        lengths = new long[TOURS];
+        fitness = new AG(distances).fitness();
+        scalar = TourEvaluator.create(distances, false);
+        vector = TourEvaluator.create(distances, true);
+    }
+
+    @Benchmark
+    public double jeneticsFitness() {
+        double total = 0;
+        for (ISeq<Integer> tour : boxedTours) {
+            total += fitness.apply(tour);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long[] scalarBatch() {
+        scalar.evaluate(tours, 0, TOURS, lengths);
+        return lengths;
+    }
+
+    @Benchmark
+    public long[] vectorBatch() {
+        vector.evaluate(tours, 0, TOURS, lengths);
+        return lengths;
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.threadpackage;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Localisation des instances livrées avec le projet (distance_matrix&lt;n&gt;.txt).
+ * Le dossier est donné par la propriété {@code instances.dir}, par défaut le dossier parent
+ * (les bancs d'essai sont lancés depuis benchmarks/).
+ */
+final class Instances {
+
+    private Instances() {
+    }
+
+    /**
+     * @param cities Nombre de villes de l'instance (17, 76, 99, 124 ou 318).
+     * @return Le chemin de la matrice texte de l'instance.
+     */
+    static Path matrix(String cities) {
+        return Paths.get(System.getProperty("instances.dir", ".."), "distance_matrix" + cities + ".txt");
+    }
+
+    /**
+     * @param cities Nombre de villes de l'instance.
+     * @return La matrice des distances de l'instance.
+     */
+    static int[][] read(String cities) {
+        int[][] matrix = Main.readMatrixFromFile(matrix(cities).toString());
+        if (matrix == null) {
+            throw new IllegalStateException("Instance introuvable : " + matrix(cities).toAbsolutePath());
+        }
+        return matrix;
+    }
+}
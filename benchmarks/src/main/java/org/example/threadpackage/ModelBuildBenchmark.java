@@ -0,0 +1,39 @@
+package org.example.threadpackage;
+
+import org.chocosolver.solver.Model;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction d'un modèle PPC ({@link PPC#SolveTSP}) : tables complètes ou listes de candidats.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class ModelBuildBenchmark {
+
+    @Param({"17", "76", "99", "124", "318"})
+    public String cities;
+
+    @Param({"0", "10"})
+    public int candidates;
+
+    private DistanceProvider distances;
+
+    @Setup
+    public void setup() {
+        distances = DistanceProvider.of(Instances.read(cities));
+    }
+
+    @Benchmark
+    public Model solveTSP() throws FileNotFoundException {
+        int C = distances.size();
+        return PPC.SolveTSP(C, distances, new EdgeDomainStore(C), new SharedSolution(),
+                ModelOptions.defaults().withCandidates(candidates));
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.threadpackage;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lecture d'une instance : matrice texte ({@link Main#readMatrixFromFile}) et matrice binaire
+ * convertie par {@link MatrixConverter} (projection mémoire puis copie en {@code int[][]}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReadMatrixBenchmark {
+
+    @Param({"17", "76", "99", "124", "318"})
+    public String cities;
+
+    private String textPath;
+    private String binaryPath;
+    private Path binary;
+
+    @Setup
+    public void setup() throws IOException {
+        textPath = Instances.matrix(cities).toString();
+        binary = Files.createTempFile("distance_matrix" + cities, BinaryMatrix.EXTENSION);
+        MatrixConverter.convertTextMatrix(Instances.matrix(cities), binary);
+        binaryPath = binary.toString();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(binary);
+    }
+
+    @Benchmark
+    public int[][] readTextMatrix() {
+        return Main.readMatrixFromFile(textPath);
+    }
+
+    @Benchmark
+    public int[][] readBinaryMatrix() {
+        return Main.readMatrixFromFile(binaryPath);
+    }
+}
@@ -8,7 +8,6 @@ import io.jenetics.*;
 import io.jenetics.engine.*;
 import io.jenetics.util.ISeq;
 
-import java.util.List;
 import java.util.function.Function;
 import java.util.stream.IntStream;
 
@@ -17,58 +16,115 @@ import java.util.stream.IntStream;
  */
 public final class AG implements Problem<ISeq<Integer>, EnumGene<Integer>, Double> {
 
-    private int[][] distanceMatrix;
-    private final int[][] originalDistanceMatrix;
-    private final List<CityConnections> connectionsBlocks;
+    static final int POPULATION_SIZE = 50;
+    static final double MUTATION_RATE = 0.15;
+    static final double CROSSOVER_RATE = 0.15;
+
+    /**
+     * Nombre de générations entre deux publications de la population (voisinages LNS de la PPC).
+     */
+    static final int POPULATION_PUBLISH_INTERVAL = 100;
+
+    private final MaskedDistances distances;
+    private PermutationEngine engine;
+    private long appliedDomainVersion = -1;
+    private long injectedTourVersion = 0;
+    private int[] injectedOrder;
+    private LocalSearch localSearch;
+    private double localSearchRate;
+    private double mutationRate = MUTATION_RATE;
+    private double crossoverRate = CROSSOVER_RATE;
+    private TourEvaluator.FlatTable flatDistances;
+
+    /**
+     * Constructeur de la classe AG. L'AG lit les distances à travers un masque des arcs
+     * interdits : les distances de l'appelant, que les modèles PPC lisent, ne sont pas modifiées.
+     *
+     * @param distances Les distances entre les villes.
+     */
+    public AG(final DistanceProvider distances) {
+        this.distances = new MaskedDistances(distances);
+    }
 
     /**
      * Constructeur de la classe AG.
      *
-     * @param distanceMatrix    Matrice des distances entre les villes.
-     * @param connectionsBlocks Liste des connexions possibles entre les villes.
+     * @param distanceMatrix Matrice des distances entre les villes.
      */
-    public AG(final int[][] distanceMatrix, final List<CityConnections> connectionsBlocks) {
-        this.distanceMatrix = distanceMatrix;
-        this.originalDistanceMatrix = copyMatrix(distanceMatrix);
-        this.connectionsBlocks = connectionsBlocks;
+    public AG(final int[][] distanceMatrix) {
+        this(new ArrayDistances(distanceMatrix));
     }
 
     /**
-     * Copie une matrice d'entiers.
+     * Met à jour les distances en fonction du domaine des arcs publié par la PPC : les arcs
+     * interdits valent désormais Integer.MAX_VALUE, les arcs de nouveau autorisés retrouvent
+     * leur distance d'origine. La population du moteur est ensuite réparée et réévaluée.
      *
-     * @param matrix Matrice à copier.
-     * @return Copie de la matrice.
+     * @param edgeDomain Instantané cohérent du domaine des arcs entre les villes.
+     * @return true si l'instantané est nouveau et a été appliqué.
      */
-    private int[][] copyMatrix(int[][] matrix) {
-        int[][] copy = new int[matrix.length][];
-        for (int i = 0; i < matrix.length; i++) {
-            copy[i] = matrix[i].clone();
+    public boolean initializeWithConnectionsBlocks(EdgeDomainStore.Snapshot edgeDomain) {
+        if (edgeDomain.version() == appliedDomainVersion) {
+            return false;
+        }
+        appliedDomainVersion = edgeDomain.version();
+        distances.setMask(edgeDomain);
+        if (localSearch != null) {
+            localSearch.onDistancesChanged();
         }
-        return copy;
+        if (engine != null) {
+            engine.onDistancesChanged();
+        }
+        return true;
     }
 
     /**
-     * Initialise la matrice des distances en fonction des blocs de connexions.
+     * Active l'étape de recherche locale 2-opt / Or-opt (algorithme mémétique).
      *
-     * @param connectionsBlocks Liste des connexions entre les villes.
-     */
-    public void initializeWithConnectionsBlocks(List<CityConnections> connectionsBlocks) {
-        int C = distanceMatrix.length;
-        for (int i = 0; i < C; i++) {
-            for (int j = 0; j < C; j++) {
-                if (i != j) {
-                    int connIndex = i * C + j;
-                    int blockIndex = connIndex / 64;
-                    int bitIndex = connIndex % 64;
-
-                    if (!connectionsBlocks.get(blockIndex).isConnectionSet(63 - bitIndex)) {
-                        distanceMatrix[i][j] = Integer.MAX_VALUE;
-                    }
-                }
-            }
+     * @param neighborCount   Taille des listes de candidats (k plus proches voisins).
+     * @param rate            Probabilité qu'un enfant soit amélioré par recherche locale.
+     * @param maxMoves        Nombre maximal de mouvements par individu.
+     * @param timeBudgetNanos Durée maximale de recherche locale par individu.
+     */
+    public void enableLocalSearch(int neighborCount, double rate, int maxMoves, long timeBudgetNanos) {
+        int[][] neighbors = NeighborLists.compute(distances.getDistances(), neighborCount);
+        this.localSearch = new LocalSearch(distances, neighbors, maxMoves, timeBudgetNanos);
+        this.localSearchRate = rate;
+        if (engine != null) {
+            engine.setLocalSearch(localSearch, rate);
         }
     }
 
+    /**
+     * Modifie les taux des opérateurs du moteur primitif (par exemple pour différencier les îles).
+     * À appeler avant la première exécution.
+     *
+     * @param mutationRate  Probabilité qu'un enfant subisse un échange de deux villes.
+     * @param crossoverRate Probabilité qu'un enfant soit issu d'un croisement PMX.
+     */
+    public void setOperatorRates(double mutationRate, double crossoverRate) {
+        this.mutationRate = mutationRate;
+        this.crossoverRate = crossoverRate;
+    }
+
+    /**
+     * Active l'évaluation vectorielle des tournées (API Vector, copie aplatie des distances en n²
+     * entiers). Sans le module {@code jdk.incubator.vector}, l'évaluation reste scalaire.
+     * À appeler avant la première exécution.
+     */
+    public void enableVectorEvaluation() {
+        enableVectorEvaluation(TourEvaluator.flatten(distances.getDistances()));
+    }
+
+    /**
+     * Active l'évaluation vectorielle sur une copie aplatie des distances partagée avec d'autres îles.
+     *
+     * @param table La copie ({@link TourEvaluator#flatten}), ou null pour rester scalaire.
+     */
+    public void enableVectorEvaluation(TourEvaluator.FlatTable table) {
+        this.flatDistances = table;
+    }
+
     /**
      * Fonction d'évaluation du fitness d'un chemin donné.
      *
@@ -81,18 +137,20 @@ public final class AG implements Problem<ISeq<Integer>, EnumGene<Integer>, Doubl
             for (int i = 0; i < tour.size() - 1; i++) {
                 int from = tour.get(i);
                 int to = tour.get(i + 1);
-                if (distanceMatrix[from][to] == Integer.MAX_VALUE) {
+                int d = distances.distance(from, to);
+                if (d == Integer.MAX_VALUE) {
                     return Double.MAX_VALUE;
                 }
-                totalDistance += distanceMatrix[from][to];
+                totalDistance += d;
             }
 
             int last = tour.get(tour.size() - 1);
             int first = tour.get(0);
-            if (distanceMatrix[last][first] == Integer.MAX_VALUE) {
+            int d = distances.distance(last, first);
+            if (d == Integer.MAX_VALUE) {
                 return Double.MAX_VALUE;
             }
-            totalDistance += distanceMatrix[last][first];
+            totalDistance += d;
 
             return totalDistance;
         };
@@ -105,25 +163,137 @@ public final class AG implements Problem<ISeq<Integer>, EnumGene<Integer>, Doubl
      */
     @Override
     public Codec<ISeq<Integer>, EnumGene<Integer>> codec() {
-        ISeq<Integer> cityIndices = IntStream.range(0, distanceMatrix.length)
+        ISeq<Integer> cityIndices = IntStream.range(0, distances.size())
                 .boxed()
                 .collect(ISeq.toISeq());
         return Codecs.ofPermutation(cityIndices);
     }
 
     /**
-     * Exécute l'algorithme génétique pour trouver une solution optimale.
+     * Exécute l'algorithme génétique pour trouver une solution optimale, sur le moteur
+     * à permutations primitives {@link PermutationEngine} (aucune conversion en Integer).
+     * Le moteur et sa population sont conservés entre deux appels : chaque époque reprend
+     * l'évolution là où la précédente s'est arrêtée.
      *
      * @param generations    Nombre de générations pour l'évolution.
      * @param sharedSolution Référence vers l'objet stockant la meilleure solution trouvée.
      */
     public void runAlgorithm(int generations, SharedSolution sharedSolution) {
+        ensureEngine();
+        long published = PermutationEngine.INFEASIBLE;
+        long start = engine.getGenerations();
+        for (int g = 0; g < generations && !sharedSolution.isStopped(); g++) {
+            injectSharedTour(sharedSolution);
+            engine.evolve(1);
+            if (engine.getGenerations() % POPULATION_PUBLISH_INTERVAL == 0) {
+                sharedSolution.publishPopulation(engine.getFeasibleSuccessors());
+            }
+            long best = engine.getBestLength();
+            if (best < published) {
+                published = best;
+                sharedSolution.offerTour(SharedSolution.Tour.successorsOf(engine.getBestTour()), best,
+                        SharedSolution.Source.GA);
+            }
+        }
+        sharedSolution.getMetrics().recordGenerations(engine.getGenerations() - start, engine.getBestLength());
+    }
+
+    private void ensureEngine() {
+        if (engine == null) {
+            engine = new PermutationEngine(distances, POPULATION_SIZE,
+                    mutationRate, crossoverRate, System.nanoTime());
+            if (flatDistances != null) {
+                engine.setEvaluator(TourEvaluator.create(distances, flatDistances));
+            }
+            engine.setLocalSearch(localSearch, localSearchRate);
+            engine.onDistancesChanged();
+        }
+    }
+
+    /**
+     * Remplace le pire individu par une tournée venue d'une autre île.
+     *
+     * @param order Ordre de visite des villes.
+     */
+    public void immigrate(int[] order) {
+        ensureEngine();
+        engine.inject(order);
+    }
+
+    /**
+     * Remplace une partie de la population par des tournées données (reprise d'un point de contrôle).
+     *
+     * @param tours Ordres de visite des villes.
+     */
+    public void seedPopulation(int[][] tours) {
+        ensureEngine();
+        engine.seed(tours);
+    }
+
+    /**
+     * @return Une copie de la population (ordres de visite), ou null si l'algorithme n'a pas
+     * encore été exécuté.
+     */
+    public int[][] getPopulation() {
+        return engine == null ? null : engine.getPopulation();
+    }
+
+    /**
+     * @return Une copie de la meilleure tournée de la population (ordre de visite), ou null si
+     * l'algorithme n'a pas encore été exécuté.
+     */
+    public int[] getBestTour() {
+        return engine == null ? null : engine.getBestTour();
+    }
+
+    /**
+     * @return La longueur de la meilleure tournée de la population, ou {@link PermutationEngine#INFEASIBLE}.
+     */
+    public long getBestLength() {
+        return engine == null ? PermutationEngine.INFEASIBLE : engine.getBestLength();
+    }
+
+    /**
+     * @return Le nombre de générations exécutées par le moteur primitif.
+     */
+    public long getGenerations() {
+        return engine == null ? 0 : engine.getGenerations();
+    }
+
+    /**
+     * Injecte dans la population la dernière meilleure tournée trouvée par la PPC (ou reçue d'un autre
+     * processus), si elle est nouvelle.
+     */
+    private void injectSharedTour(SharedSolution sharedSolution) {
+        SharedSolution.Tour tour = sharedSolution.getBestTour();
+        if (tour == null || tour.version() == injectedTourVersion || tour.size() != distances.size()) {
+            return;
+        }
+        injectedTourVersion = tour.version();
+        if (tour.getSource() != SharedSolution.Source.GA) {
+            if (injectedOrder == null) {
+                injectedOrder = new int[distances.size()];
+            }
+            tour.toOrder(injectedOrder);
+            engine.inject(injectedOrder);
+            sharedSolution.getMetrics().recordTourLatency(tour, SharedSolution.Source.GA);
+        }
+    }
+
+    /**
+     * Exécute l'algorithme génétique avec le moteur Jenetics ({@code EnumGene<Integer>}).
+     * Conservé comme référence de comparaison pour le moteur primitif.
+     *
+     * @param generations    Nombre de générations pour l'évolution.
+     * @param sharedSolution Référence vers l'objet stockant la meilleure solution trouvée.
+     */
+    public void runJeneticsAlgorithm(int generations, SharedSolution sharedSolution) {
 
         final Engine<EnumGene<Integer>, Double> engine = Engine.builder(this)
                 .optimize(Optimize.MINIMUM)
                 .alterers(
-                        new SwapMutator<>(0.15),
-                        new PartiallyMatchedCrossover<>(0.15)
+                        new SwapMutator<>(MUTATION_RATE),
+                        new PartiallyMatchedCrossover<>(CROSSOVER_RATE)
                 )
                 .build();
 
@@ -0,0 +1,26 @@
+package org.example.threadpackage;
+
+/**
+ * Distances lues dans une matrice pleine {@code int[n][n]} (matrices non symétriques).
+ */
+public final class ArrayDistances implements DistanceProvider {
+
+    private final int[][] matrix;
+
+    /**
+     * @param matrix La matrice des distances, qui n'est pas copiée.
+     */
+    public ArrayDistances(int[][] matrix) {
+        this.matrix = matrix;
+    }
+
+    @Override
+    public int size() {
+        return matrix.length;
+    }
+
+    @Override
+    public int distance(int from, int to) {
+        return matrix[from][to];
+    }
+}
@@ -0,0 +1,225 @@
+package org.example.threadpackage;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+
+/**
+ * Matrice des distances au format binaire, lue par projection mémoire ({@link FileChannel#map}).
+ * <p>
+ * Format (petit-boutiste) : un en-tête de {@value #HEADER_SIZE} octets
+ * <pre>
+ *   0  int   MAGIC ("TSPM")
+ *   4  short VERSION
+ *   6  byte  largeur d'un élément en octets (2 : entier non signé sur 16 bits, 4 : int)
+ *   7  byte  drapeaux (FLAG_SYMMETRIC : seul le triangle supérieur strict est stocké)
+ *   8  int   nombre de villes n
+ *  12  int   réservé (0)
+ * </pre>
+ * suivi des distances ligne par ligne : n*n éléments, ou n(n-1)/2 éléments (i &lt; j) pour une
+ * matrice symétrique dont la diagonale est nulle. L'ouverture ne fait que projeter le fichier :
+ * les pages sont chargées par le système à la première lecture, sans analyse du contenu.
+ * En tant que {@link DistanceProvider}, la matrice est lue en place, hors du tas Java.
+ */
+public final class BinaryMatrix implements DistanceProvider {
+
+    static final int MAGIC = 0x4D505354;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final byte FLAG_SYMMETRIC = 1;
+
+    /**
+     * Extension des fichiers de matrice binaire.
+     */
+    public static final String EXTENSION = ".bin";
+
+    private final MappedByteBuffer buffer;
+    private final int cityCount;
+    private final int elementWidth;
+    private final boolean symmetric;
+
+    private BinaryMatrix(MappedByteBuffer buffer, int cityCount, int elementWidth, boolean symmetric) {
+        this.buffer = buffer;
+        this.cityCount = cityCount;
+        this.elementWidth = elementWidth;
+        this.symmetric = symmetric;
+    }
+
+    /**
+     * Projette en mémoire un fichier de matrice binaire et vérifie son en-tête.
+     *
+     * @param path Chemin du fichier.
+     * @return La matrice projetée.
+     * @throws IOException Si le fichier est illisible ou n'est pas une matrice binaire valide.
+     */
+    public static BinaryMatrix open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Fichier trop court pour une matrice binaire : " + path);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Matrice binaire de plus de 2 Go non prise en charge : " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+                throw new IOException("En-tête de matrice binaire invalide : " + path);
+            }
+            int width = buffer.get(6);
+            boolean symmetric = (buffer.get(7) & FLAG_SYMMETRIC) != 0;
+            int n = buffer.getInt(8);
+            if ((width != 2 && width != 4) || n < 0 || size != HEADER_SIZE + dataSize(n, width, symmetric)) {
+                throw new IOException("Taille ou largeur de matrice binaire incohérente : " + path);
+            }
+            // la projection reste valide après la fermeture du canal
+            return new BinaryMatrix(buffer, n, width, symmetric);
+        }
+    }
+
+    /**
+     * Crée (ou écrase) un fichier de matrice binaire, écrit son en-tête et le projette en écriture.
+     * Les distances sont ensuite écrites avec {@link #put}.
+     *
+     * @return La projection du fichier complet, en-tête compris.
+     * @throws IOException Si le fichier ne peut pas être créé ou dépasse 2 Go.
+     */
+    static MappedByteBuffer create(Path path, int n, int elementWidth, boolean symmetric) throws IOException {
+        long size = HEADER_SIZE + dataSize(n, elementWidth, symmetric);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Matrice binaire de plus de 2 Go non prise en charge : " + path);
+        }
+        try (FileChannel channel = FileChannel.open(path, EnumSet.of(StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE))) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(0, MAGIC);
+            buffer.putShort(4, VERSION);
+            buffer.put(6, (byte) elementWidth);
+            buffer.put(7, symmetric ? FLAG_SYMMETRIC : 0);
+            buffer.putInt(8, n);
+            buffer.putInt(12, 0);
+            return buffer;
+        }
+    }
+
+    /**
+     * Écrit l'élément d'indice donné (voir {@link #index}) dans une projection créée par {@link #create}.
+     */
+    static void put(MappedByteBuffer buffer, int elementWidth, long index, int value) {
+        int offset = (int) (HEADER_SIZE + index * elementWidth);
+        if (elementWidth == 2) {
+            buffer.putShort(offset, (short) value);
+        } else {
+            buffer.putInt(offset, value);
+        }
+    }
+
+    /**
+     * Lit l'élément d'indice donné dans une projection créée par {@link #create}.
+     */
+    static int get(MappedByteBuffer buffer, int elementWidth, long index) {
+        int offset = (int) (HEADER_SIZE + index * elementWidth);
+        return elementWidth == 2 ? buffer.getShort(offset) & 0xFFFF : buffer.getInt(offset);
+    }
+
+    /**
+     * @return Le nombre d'octets de données d'une matrice de n villes.
+     */
+    static long dataSize(int n, int elementWidth, boolean symmetric) {
+        long elements = symmetric ? (long) n * (n - 1) / 2 : (long) n * n;
+        return elements * elementWidth;
+    }
+
+    /**
+     * @return L'indice de l'élément (i, j) dans la zone de données (i &lt; j pour une matrice symétrique).
+     */
+    static long index(int n, int i, int j, boolean symmetric) {
+        if (symmetric) {
+            return (long) i * (2L * n - i - 1) / 2 + (j - i - 1);
+        }
+        return (long) i * n + j;
+    }
+
+    @Override
+    public int size() {
+        return cityCount;
+    }
+
+    @Override
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    public int getElementWidth() {
+        return elementWidth;
+    }
+
+    /**
+     * @return La distance de la ville i à la ville j, lue directement dans la projection.
+     */
+    @Override
+    public int distance(int i, int j) {
+        if (symmetric) {
+            if (i == j) {
+                return 0;
+            }
+            if (i > j) {
+                int t = i;
+                i = j;
+                j = t;
+            }
+        }
+        return get(buffer, elementWidth, index(cityCount, i, j, symmetric));
+    }
+
+    /**
+     * Copie la matrice dans un tableau {@code int[n][n]} par copies en bloc, pour les consommateurs
+     * qui travaillent sur une matrice pleine.
+     *
+     * @return La matrice des distances.
+     */
+    public int[][] toMatrix() {
+        int n = cityCount;
+        int[][] matrix = new int[n][n];
+        if (elementWidth == 4 && !symmetric) {
+            IntBuffer ints = buffer.slice(HEADER_SIZE, n * n * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            for (int i = 0; i < n; i++) {
+                ints.get(matrix[i]);
+            }
+            return matrix;
+        }
+        short[] shorts = elementWidth == 2 ? new short[n] : null;
+        for (int i = 0; i < n; i++) {
+            int from = symmetric ? i + 1 : 0;
+            int count = n - from;
+            if (count == 0) {
+                continue;
+            }
+            int offset = (int) (HEADER_SIZE + index(n, i, from, symmetric) * elementWidth);
+            int[] row = matrix[i];
+            if (elementWidth == 2) {
+                ShortBuffer view = buffer.slice(offset, count * 2).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+                view.get(shorts, 0, count);
+                for (int k = 0; k < count; k++) {
+                    row[from + k] = shorts[k] & 0xFFFF;
+                }
+            } else {
+                IntBuffer view = buffer.slice(offset, count * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                view.get(row, from, count);
+            }
+            if (symmetric) {
+                for (int j = from; j < n; j++) {
+                    matrix[j][i] = row[j];
+                }
+            }
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,316 @@
+package org.example.threadpackage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point de contrôle d'une résolution : meilleure tournée et sa longueur, meilleure borne
+ * inférieure, domaine des arcs et populations des îles de l'AG.
+ * <p>
+ * Format binaire (gros-boutiste) : en-tête {@code TSPC}, version du format, nombre de villes C,
+ * empreinte des distances ({@link DistanceProvider#fingerprint()}), longueur, origine et
+ * successeurs de la meilleure tournée, borne inférieure, mots du domaine des arcs, puis pour
+ * chaque île ses individus, et enfin une somme CRC32 de tout ce qui précède.
+ * Les villes sont codées sur 2 octets lorsque C &le; 65 536, sur 4 sinon. Le fichier est écrit
+ * sous un nom temporaire puis renommé atomiquement : un arrêt brutal laisse toujours le point
+ * de contrôle précédent intact.
+ */
+public final class Checkpoint {
+
+    /**
+     * Extension conventionnelle des fichiers de point de contrôle.
+     */
+    public static final String EXTENSION = ".tspc";
+
+    private static final int MAGIC = 0x54535043; // "TSPC"
+    private static final int FORMAT_VERSION = 2;
+
+    private final int cityCount;
+    private final long fingerprint;
+    private final int[] bestSuccessors;
+    private final long bestLength;
+    private final SharedSolution.Source bestSource;
+    private final long lowerBound;
+    private final long[] edgeDomainBits;
+    private final int[][][] populations;
+
+    private Checkpoint(int cityCount, long fingerprint, int[] bestSuccessors, long bestLength,
+                       SharedSolution.Source bestSource, long lowerBound, long[] edgeDomainBits, int[][][] populations) {
+        this.cityCount = cityCount;
+        this.fingerprint = fingerprint;
+        this.bestSuccessors = bestSuccessors;
+        this.bestLength = bestLength;
+        this.bestSource = bestSource;
+        this.lowerBound = lowerBound;
+        this.edgeDomainBits = edgeDomainBits;
+        this.populations = populations;
+    }
+
+    /**
+     * Relève l'état courant sans bloquer les threads de recherche : la meilleure tournée et le
+     * domaine sont des instantanés immuables, les populations sont les dernières copies publiées
+     * par les îles.
+     *
+     * @param fingerprint    L'empreinte des distances de l'instance ({@link DistanceProvider#fingerprint()}).
+     * @param sharedSolution L'objet partagé.
+     * @param edgeDomain     Le domaine des arcs.
+     * @param islands        Les îles de l'AG, ou null.
+     * @return Le point de contrôle.
+     */
+    public static Checkpoint capture(long fingerprint, SharedSolution sharedSolution, EdgeDomainStore edgeDomain,
+                                     IslandModel islands) {
+        SharedSolution.Tour tour = sharedSolution.getBestTour();
+        int cityCount = edgeDomain.getCityCount();
+        int[] successors = null;
+        if (tour != null && tour.size() == cityCount) {
+            successors = new int[cityCount];
+            for (int i = 0; i < cityCount; i++) {
+                successors[i] = tour.successor(i);
+            }
+        }
+        EdgeDomainStore.Snapshot snapshot = edgeDomain.snapshot();
+        return new Checkpoint(cityCount, fingerprint, successors,
+                successors == null ? PermutationEngine.INFEASIBLE : tour.getLength(),
+                successors == null ? SharedSolution.Source.CP : tour.getSource(),
+                sharedSolution.getLowerBound(),
+                snapshot.version() == 0 ? null : snapshot.copyBits(),
+                islands == null ? new int[0][][] : islands.getPopulations());
+    }
+
+    /**
+     * Écrit le point de contrôle dans un fichier temporaire, le force sur disque, puis le renomme.
+     *
+     * @param file Fichier de destination (remplacé).
+     * @throws IOException Si l'écriture échoue ; le fichier de destination est alors inchangé.
+     */
+    public void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temporary.toFile())) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fileOut), crc));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(cityCount);
+            out.writeLong(fingerprint);
+            out.writeBoolean(bestSuccessors != null);
+            if (bestSuccessors != null) {
+                out.writeLong(bestLength);
+                out.writeByte(bestSource.ordinal());
+                writeCities(out, bestSuccessors);
+            }
+            out.writeLong(lowerBound);
+            out.writeInt(edgeDomainBits == null ? 0 : edgeDomainBits.length);
+            if (edgeDomainBits != null) {
+                for (long word : edgeDomainBits) {
+                    out.writeLong(word);
+                }
+            }
+            out.writeInt(populations.length);
+            for (int[][] population : populations) {
+                out.writeInt(population == null ? 0 : population.length);
+                if (population != null) {
+                    for (int[] tour : population) {
+                        writeCities(out, tour);
+                    }
+                }
+            }
+            out.writeLong(crc.getValue());
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Lit un point de contrôle.
+     *
+     * @param file Fichier écrit par {@link #write(Path)}.
+     * @return Le point de contrôle.
+     * @throws IOException Si le fichier est illisible, tronqué ou corrompu.
+     */
+    public static Checkpoint read(Path file) throws IOException {
+        // la somme est vérifiée avant toute lecture : aucun compte d'un fichier abîmé n'est utilisé
+        byte[] content = Files.readAllBytes(file);
+        if (content.length < Long.BYTES) {
+            throw new IOException("Point de contrôle tronqué : " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length - Long.BYTES);
+        ByteBuffer trailer = ByteBuffer.wrap(content, content.length - Long.BYTES, Long.BYTES);
+        if (trailer.getLong() != crc.getValue()) {
+            throw new IOException("Point de contrôle corrompu : " + file);
+        }
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(content, 0, content.length - Long.BYTES))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Pas un point de contrôle : " + file);
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Version de point de contrôle non prise en charge : " + version);
+            }
+            int cityCount = in.readInt();
+            if (cityCount < 0) {
+                throw new IOException("Nombre de villes invalide : " + cityCount);
+            }
+            long fingerprint = in.readLong();
+            int cityBytes = cityCount <= 65536 ? Short.BYTES : Integer.BYTES;
+            int[] successors = null;
+            long length = PermutationEngine.INFEASIBLE;
+            SharedSolution.Source source = SharedSolution.Source.CP;
+            if (in.readBoolean()) {
+                length = in.readLong();
+                int ordinal = in.readUnsignedByte();
+                if (ordinal >= SharedSolution.Source.values().length) {
+                    throw new IOException("Origine de tournée inconnue : " + ordinal);
+                }
+                source = SharedSolution.Source.values()[ordinal];
+                checkCount(in, cityCount, cityBytes);
+                successors = readCities(in, cityCount);
+            }
+            long lowerBound = in.readLong();
+            int wordCount = in.readInt();
+            long expectedWords = ((long) cityCount * cityCount + 63) >>> 6;
+            if (wordCount != 0 && wordCount != expectedWords) {
+                throw new IOException("Taille du domaine des arcs invalide : " + wordCount);
+            }
+            checkCount(in, wordCount, Long.BYTES);
+            long[] bits = null;
+            if (wordCount > 0) {
+                bits = new long[wordCount];
+                for (int w = 0; w < wordCount; w++) {
+                    bits[w] = in.readLong();
+                }
+            }
+            int islands = in.readInt();
+            checkCount(in, islands, Integer.BYTES);
+            int[][][] populations = new int[islands][][];
+            for (int i = 0; i < populations.length; i++) {
+                int size = in.readInt();
+                checkCount(in, size, (long) cityCount * cityBytes);
+                if (size > 0) {
+                    populations[i] = new int[size][];
+                    for (int k = 0; k < size; k++) {
+                        populations[i][k] = readCities(in, cityCount);
+                    }
+                }
+            }
+            if (in.available() != 0) {
+                throw new IOException("Données en trop dans le point de contrôle : " + file);
+            }
+            return new Checkpoint(cityCount, fingerprint, successors, length, source, lowerBound, bits, populations);
+        }
+    }
+
+    /**
+     * Réinstalle la meilleure tournée, la borne et le domaine des arcs, à appeler avant la
+     * construction des modèles PPC (la tournée sert d'indice et de borne de l'objectif).
+     * Rien n'est réinstallé si l'empreinte des distances n'est pas celle de l'instance, si la
+     * tournée n'est pas un cycle hamiltonien de la longueur enregistrée, ou si un individu des
+     * populations n'est pas une permutation des villes.
+     *
+     * @param distances      Les distances de l'instance.
+     * @param sharedSolution L'objet partagé.
+     * @param edgeDomain     Le domaine des arcs.
+     * @throws IllegalArgumentException Si le point de contrôle concerne une autre instance ou est incohérent.
+     */
+    public void restore(DistanceProvider distances, SharedSolution sharedSolution, EdgeDomainStore edgeDomain) {
+        if (cityCount != distances.size()) {
+            throw new IllegalArgumentException("Le point de contrôle concerne " + cityCount + " villes, l'instance "
+                    + distances.size());
+        }
+        if (fingerprint != distances.fingerprint()) {
+            throw new IllegalArgumentException("Le point de contrôle concerne une autre instance de " + cityCount
+                    + " villes");
+        }
+        if (bestSuccessors != null) {
+            long length = PermutationEngine.successorLength(bestSuccessors, distances);
+            if (length < 0) {
+                throw new IllegalArgumentException("La tournée du point de contrôle n'est pas un cycle hamiltonien");
+            }
+            if (length != bestLength) {
+                throw new IllegalArgumentException("La tournée du point de contrôle ne correspond pas à l'instance");
+            }
+        }
+        for (int[][] population : populations) {
+            for (int k = 0; population != null && k < population.length; k++) {
+                if (!PermutationEngine.isPermutation(population[k], cityCount)) {
+                    throw new IllegalArgumentException("Un individu du point de contrôle n'est pas une permutation");
+                }
+            }
+        }
+        if (bestSuccessors != null) {
+            sharedSolution.offerTour(bestSuccessors, bestLength, bestSource);
+        }
+        sharedSolution.offerLowerBound(lowerBound);
+        if (edgeDomainBits != null && edgeDomainBits.length == edgeDomain.newBuffer().length) {
+            edgeDomain.publish(edgeDomainBits);
+        }
+    }
+
+    private static void writeCities(DataOutputStream out, int[] cities) throws IOException {
+        if (cities.length <= 65536) {
+            for (int city : cities) {
+                out.writeShort(city);
+            }
+        } else {
+            for (int city : cities) {
+                out.writeInt(city);
+            }
+        }
+    }
+
+    /**
+     * Vérifie qu'un nombre d'éléments lu est positif et que le reste du fichier peut les contenir,
+     * avant toute allocation.
+     */
+    private static void checkCount(DataInputStream in, int count, long bytesPerItem) throws IOException {
+        if (count < 0 || count * bytesPerItem > in.available()) {
+            throw new IOException("Point de contrôle tronqué ou invalide (" + count + " éléments)");
+        }
+    }
+
+    private static int[] readCities(DataInputStream in, int cityCount) throws IOException {
+        int[] cities = new int[cityCount];
+        for (int i = 0; i < cityCount; i++) {
+            int city = cityCount <= 65536 ? in.readUnsignedShort() : in.readInt();
+            if (city < 0 || city >= cityCount) {
+                throw new IOException("Ville hors de l'instance : " + city);
+            }
+            cities[i] = city;
+        }
+        return cities;
+    }
+
+    public int getCityCount() {
+        return cityCount;
+    }
+
+    /**
+     * @return La longueur de la meilleure tournée, ou {@link PermutationEngine#INFEASIBLE} sans tournée.
+     */
+    public long getBestLength() {
+        return bestLength;
+    }
+
+    public long getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * @return Les populations des îles (ordres de visite des villes), une entrée null par île sans copie.
+     */
+    public int[][][] getPopulations() {
+        return populations;
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.threadpackage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Écriture périodique de points de contrôle ({@link Checkpoint}) par un thread démon : les
+ * threads de recherche de la PPC et de l'AG ne font jamais d'entrée-sortie. Une période sans
+ * nouvelle tournée, nouvelle borne, nouveau domaine ni nouvelle génération n'écrit rien.
+ */
+public final class CheckpointWriter implements AutoCloseable {
+
+    private final Path file;
+    private final long fingerprint;
+    private final long intervalNanos;
+    private final SharedSolution sharedSolution;
+    private final EdgeDomainStore edgeDomain;
+    private final IslandModel islands;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private long writtenTourVersion = -1;
+    private long writtenDomainVersion = -1;
+    private long writtenLowerBound = -1;
+    private long writtenGenerations = -1;
+    private long writeCount;
+    private long writeNanos;
+
+    /**
+     * @param file           Fichier du point de contrôle (remplacé à chaque écriture).
+     * @param distances      Les distances de l'instance, dont l'empreinte est enregistrée.
+     * @param intervalMillis Période d'écriture.
+     * @param sharedSolution L'objet partagé.
+     * @param edgeDomain     Le domaine des arcs.
+     * @param islands        Les îles de l'AG, ou null ; leurs copies de population sont activées.
+     */
+    public CheckpointWriter(Path file, DistanceProvider distances, long intervalMillis,
+                            SharedSolution sharedSolution, EdgeDomainStore edgeDomain, IslandModel islands) {
+        this.file = file;
+        this.fingerprint = distances.fingerprint();
+        this.intervalNanos = intervalMillis * 1_000_000L;
+        this.sharedSolution = sharedSolution;
+        this.edgeDomain = edgeDomain;
+        this.islands = islands;
+        if (islands != null) {
+            islands.enablePopulationSnapshots();
+        }
+        this.thread = new Thread(this::run, "checkpoint-writer");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Démarre l'écriture périodique.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(intervalNanos);
+            if (running) {
+                checkpoint();
+            }
+        }
+    }
+
+    /**
+     * Écrit un point de contrôle si l'état a changé depuis le précédent.
+     */
+    private synchronized void checkpoint() {
+        SharedSolution.Tour tour = sharedSolution.getBestTour();
+        long tourVersion = tour == null ? 0 : tour.version();
+        long domainVersion = edgeDomain.version();
+        long lowerBound = sharedSolution.getLowerBound();
+        long generations = islands == null ? 0 : islands.getGenerations();
+        if (tourVersion == writtenTourVersion && domainVersion == writtenDomainVersion
+                && lowerBound == writtenLowerBound && generations == writtenGenerations) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Checkpoint.capture(fingerprint, sharedSolution, edgeDomain, islands).write(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        writeNanos += System.nanoTime() - start;
+        writeCount++;
+        writtenTourVersion = tourVersion;
+        writtenDomainVersion = domainVersion;
+        writtenLowerBound = lowerBound;
+        writtenGenerations = generations;
+    }
+
+    /**
+     * @return Le nombre de points de contrôle écrits.
+     */
+    public synchronized long getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * @return Le temps cumulé de relevé et d'écriture, en nanosecondes.
+     */
+    public synchronized long getWriteNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * Arrête l'écriture périodique après un dernier point de contrôle.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint();
+    }
+}
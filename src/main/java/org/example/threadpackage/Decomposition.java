@@ -0,0 +1,372 @@
+package org.example.threadpackage;
+
+import org.chocosolver.solver.ParallelPortfolio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Mode décomposition pour les grandes instances : les villes sont découpées en groupes
+ * voisins, chaque groupe est résolu séparément par la PPC et l'AG, puis les cycles des groupes
+ * sont raccordés en une tournée que la recherche locale améliore, raccords compris.
+ * <p>
+ * Les villes sont rangées le long d'une courbe de Hilbert lorsque leurs coordonnées sont
+ * connues ({@link EuclideanDistances}), le long de la tournée du plus proche voisin sinon, et
+ * cet ordre est coupé en groupes consécutifs de taille égale : les groupes sont compacts et deux
+ * groupes consécutifs sont voisins, ce qui donne l'ordre de raccordement. Aucun modèle ni
+ * aucune matrice de l'instance entière n'est construit : chaque groupe lit ses distances dans
+ * une {@link SubsetDistances}. Les groupes sont résolus en parallèle, autant à la fois que les
+ * cœurs disponibles le permettent.
+ */
+public final class Decomposition {
+
+    private static final int HILBERT_ORDER = 16;
+    private static final int NEIGHBOR_COUNT = 10;
+
+    private final DistanceProvider distances;
+    private int clusterSize = 150;
+    private int modelsPerCluster = 2;
+    private int islandsPerCluster = 2;
+    private int candidateCount = NEIGHBOR_COUNT;
+    private int heldKarpIterations = 0;
+    private int lnsFailLimit = 200;
+    private long clusterTimeMillis = 10_000;
+    private long refineTimeMillis = 5_000;
+    private int parallelism;
+
+    private int clusterCount;
+    private long stitchedLength = PermutationEngine.INFEASIBLE;
+    private long length = PermutationEngine.INFEASIBLE;
+    private long elapsedMillis;
+
+    /**
+     * @param distances Les distances de l'instance.
+     */
+    public Decomposition(DistanceProvider distances) {
+        this.distances = distances;
+    }
+
+    /**
+     * @param cities Nombre de villes par groupe (les groupes ont tous la même taille, à une ville près).
+     */
+    public Decomposition withClusterSize(int cities) {
+        if (cities < 1) {
+            throw new IllegalArgumentException("Au moins une ville par groupe est attendue");
+        }
+        this.clusterSize = cities;
+        return this;
+    }
+
+    /**
+     * @param models  Modèles PPC par groupe : le premier est complet, les suivants en LNS.
+     * @param islands Îles de l'AG par groupe (0 : PPC seule).
+     */
+    public Decomposition withClusterSolvers(int models, int islands) {
+        if (models < 1 || islands < 0) {
+            throw new IllegalArgumentException("Au moins un modèle PPC par groupe est attendu");
+        }
+        this.modelsPerCluster = models;
+        this.islandsPerCluster = islands;
+        return this;
+    }
+
+    /**
+     * @param k Villes candidates par successeur dans les modèles des groupes (0 : domaines complets,
+     *          dont les tables occupent une mémoire quadratique en la taille du groupe).
+     */
+    public Decomposition withCandidates(int k) {
+        this.candidateCount = k;
+        return this;
+    }
+
+    /**
+     * @param rootIterations Itérations Held-Karp à la racine des modèles complets (0 : pas de borne).
+     */
+    public Decomposition withHeldKarp(int rootIterations) {
+        this.heldKarpIterations = rootIterations;
+        return this;
+    }
+
+    /**
+     * @param failLimit Échecs par voisinage des modèles LNS (0 : tous les modèles sont complets).
+     */
+    public Decomposition withLns(int failLimit) {
+        this.lnsFailLimit = failLimit;
+        return this;
+    }
+
+    /**
+     * @param millis Temps de calcul de chaque groupe.
+     */
+    public Decomposition withClusterTimeLimit(long millis) {
+        this.clusterTimeMillis = millis;
+        return this;
+    }
+
+    /**
+     * @param millis Durée maximale de la recherche locale sur la tournée raccordée.
+     */
+    public Decomposition withRefineTimeLimit(long millis) {
+        this.refineTimeMillis = millis;
+        return this;
+    }
+
+    /**
+     * @param clusters Groupes résolus simultanément (0 : selon les cœurs disponibles).
+     */
+    public Decomposition withParallelism(int clusters) {
+        this.parallelism = clusters;
+        return this;
+    }
+
+    /**
+     * Résout l'instance groupe par groupe, raccorde les cycles et améliore la tournée.
+     *
+     * @return L'ordre de visite des villes.
+     * @throws InterruptedException Si l'attente de la résolution des groupes est interrompue.
+     */
+    public int[] solve() throws InterruptedException {
+        long start = System.nanoTime();
+        int n = distances.size();
+        int[] order = linearOrder(distances);
+        clusterCount = Math.max(1, (n + clusterSize - 1) / clusterSize);
+
+        int threadsPerCluster = modelsPerCluster + (islandsPerCluster > 0 ? 1 : 0);
+        int workers = parallelism > 0 ? parallelism
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / threadsPerCluster);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, clusterCount));
+        List<int[]> cycles = new ArrayList<>(clusterCount);
+        try {
+            List<Future<int[]>> futures = new ArrayList<>(clusterCount);
+            for (int c = 0; c < clusterCount; c++) {
+                int[] cities = Arrays.copyOfRange(order, (int) ((long) c * n / clusterCount),
+                        (int) ((long) (c + 1) * n / clusterCount));
+                futures.add(executor.submit(() -> solveCluster(cities)));
+            }
+            for (Future<int[]> future : futures) {
+                cycles.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Échec de la résolution d'un groupe", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int[] tour = stitch(distances, cycles);
+        stitchedLength = PermutationEngine.length(tour, distances);
+        LocalSearch localSearch = new LocalSearch(distances, NeighborLists.compute(distances, NEIGHBOR_COUNT),
+                Integer.MAX_VALUE, refineTimeMillis * 1_000_000L);
+        length = localSearch.improve(tour, stitchedLength);
+        elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return tour;
+    }
+
+    /**
+     * Résout un groupe avec un portefeuille PPC et des îles de l'AG qui lui sont propres.
+     *
+     * @param cities Les villes du groupe, dans l'ordre de la courbe.
+     * @return Le cycle du groupe (villes de l'instance).
+     */
+    private int[] solveCluster(int[] cities) throws Exception {
+        int m = cities.length;
+        if (m < 4) {
+            return cities;
+        }
+        SubsetDistances view = new SubsetDistances(distances, cities);
+        SharedSolution sharedSolution = new SharedSolution();
+        EdgeDomainStore edgeDomain = new EdgeDomainStore(m);
+        // tournée de départ : l'ordre de la courbe amélioré par la recherche locale, qui sert
+        // d'indice et de borne de l'objectif aux modèles construits ensuite
+        int[] start = new int[m];
+        for (int k = 0; k < m; k++) {
+            start[k] = k;
+        }
+        long startLength = new LocalSearch(view, NeighborLists.compute(view, NEIGHBOR_COUNT), Integer.MAX_VALUE,
+                refineTimeMillis * 1_000_000L).improve(start, PermutationEngine.length(start, view));
+        int[] successors = new int[m];
+        for (int k = 0; k < m; k++) {
+            successors[start[k]] = start[(k + 1) % m];
+        }
+        sharedSolution.offerTour(successors, startLength, SharedSolution.Source.GA);
+        ParallelPortfolio portfolio = new ParallelPortfolio(false);
+        boolean completeSearch = Main.buildPortfolio(portfolio, view, 0, modelsPerCluster, candidateCount,
+                heldKarpIterations, lnsFailLimit, edgeDomain, sharedSolution);
+        IslandModel islands = null;
+        if (islandsPerCluster > 0) {
+            islands = new IslandModel(view, islandsPerCluster, 1, IslandModel.Topology.RING, 500, edgeDomain,
+                    sharedSolution);
+            islands.enableLocalSearch(NEIGHBOR_COUNT, 0.1, 1000, 1_000_000L);
+        }
+        new SolverCoordinator(portfolio, islands, sharedSolution)
+                .withTimeLimit(clusterTimeMillis)
+                .withTargetGap(0.0)
+                .withCompleteSearch(completeSearch)
+                .withSolutionOutput(false)
+                .run();
+
+        SharedSolution.Tour best = sharedSolution.getBestTour();
+        int[] cycle = new int[m];
+        int city = 0;
+        for (int k = 0; k < m; k++) {
+            cycle[k] = view.city(city);
+            city = best.successor(city);
+        }
+        return cycle;
+    }
+
+    /**
+     * Range les villes le long d'une courbe de Hilbert si leurs coordonnées sont connues, le long
+     * de la tournée du plus proche voisin sinon.
+     *
+     * @return Les villes dans l'ordre de la courbe ou de la tournée.
+     */
+    static int[] linearOrder(DistanceProvider distances) {
+        if (distances instanceof EuclideanDistances euclidean) {
+            return hilbertOrder(euclidean);
+        }
+        int n = distances.size();
+        int[] successors = PPC.nearestNeighbourSuccessors(distances);
+        int[] order = new int[n];
+        int city = 0;
+        for (int k = 0; k < n; k++) {
+            order[k] = city;
+            city = successors[city];
+        }
+        return order;
+    }
+
+    private static int[] hilbertOrder(EuclideanDistances distances) {
+        int n = distances.size();
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, distances.x(i));
+            maxX = Math.max(maxX, distances.x(i));
+            minY = Math.min(minY, distances.y(i));
+            maxY = Math.max(maxY, distances.y(i));
+        }
+        double scale = ((1 << HILBERT_ORDER) - 1) / Math.max(Math.max(maxX - minX, maxY - minY), 1e-9);
+        // indice sur la courbe dans les bits de poids fort, ville dans les 31 bits de poids faible
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            int hx = (int) ((distances.x(i) - minX) * scale);
+            int hy = (int) ((distances.y(i) - minY) * scale);
+            keys[i] = (hilbertIndex(hx, hy) << 31) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[n];
+        for (int k = 0; k < n; k++) {
+            order[k] = (int) (keys[k] & Integer.MAX_VALUE);
+        }
+        return order;
+    }
+
+    /**
+     * @return La position du point (x, y) de la grille 2^16 x 2^16 sur la courbe de Hilbert.
+     */
+    private static long hilbertIndex(int x, int y) {
+        int side = 1 << HILBERT_ORDER;
+        long index = 0;
+        for (int s = side >> 1; s > 0; s >>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            index += (long) s * s * ((3 * rx) ^ ry);
+            // rotation du quadrant pour que la courbe y soit parcourue dans le bon sens
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Raccorde les cycles dans l'ordre donné : chaque cycle est ouvert sur l'arc qui minimise le
+     * coût de son raccord (arc depuis la dernière ville du cycle précédent, moins l'arc retiré,
+     * plus l'arc de sa dernière ville vers la ville la plus proche du cycle suivant), et parcouru
+     * dans un sens ou dans l'autre lorsque les distances sont symétriques.
+     *
+     * @return L'ordre de visite des villes.
+     */
+    static int[] stitch(DistanceProvider distances, List<int[]> cycles) {
+        boolean symmetric = distances.isSymmetric();
+        int[] tour = new int[distances.size()];
+        int size = 0;
+        for (int c = 0; c < cycles.size(); c++) {
+            int[] cycle = cycles.get(c);
+            int m = cycle.length;
+            int entry = 0;
+            int direction = 1;
+            if (cycles.size() > 1) {
+                // le dernier cycle revient à la première ville de la tournée, déjà fixée
+                int[] next = c + 1 < cycles.size() ? cycles.get(c + 1) : new int[]{tour[0]};
+                long best = Long.MAX_VALUE;
+                for (int e = 0; e < m; e++) {
+                    for (int d = 1; d >= (symmetric ? -1 : 1); d -= 2) {
+                        // la dernière ville parcourue précède l'entrée dans ce sens : leur arc est retiré
+                        int last = cycle[Math.floorMod(e - d, m)];
+                        long cost = nearest(distances, last, next) - (long) distances.distance(last, cycle[e]);
+                        if (size > 0) {
+                            cost += distances.distance(tour[size - 1], cycle[e]);
+                        }
+                        if (cost < best) {
+                            best = cost;
+                            entry = e;
+                            direction = d;
+                        }
+                    }
+                }
+            }
+            for (int k = 0; k < m; k++) {
+                tour[size++] = cycle[Math.floorMod(entry + direction * k, m)];
+            }
+        }
+        return tour;
+    }
+
+    /**
+     * @return La plus courte distance de la ville à une ville de la liste.
+     */
+    private static long nearest(DistanceProvider distances, int city, int[] cities) {
+        long best = Long.MAX_VALUE;
+        for (int other : cities) {
+            best = Math.min(best, distances.distance(city, other));
+        }
+        return best;
+    }
+
+    /**
+     * @return Le nombre de groupes de la dernière résolution.
+     */
+    public int getClusterCount() {
+        return clusterCount;
+    }
+
+    /**
+     * @return La longueur de la tournée raccordée, avant la recherche locale.
+     */
+    public long getStitchedLength() {
+        return stitchedLength;
+    }
+
+    /**
+     * @return La longueur de la tournée finale.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
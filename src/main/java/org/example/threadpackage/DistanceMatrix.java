@@ -69,7 +69,7 @@ public class DistanceMatrix {
     }
 
     // Méthode pour calculer la distance euclidienne entre deux villes
-    private static int calculateDistance(int[] cityA, int[] cityB) {
+    static int calculateDistance(int[] cityA, int[] cityB) {
         int x1 = cityA[0];
         int y1 = cityA[1];
         int x2 = cityB[0];
@@ -0,0 +1,121 @@
+package org.example.threadpackage;
+
+import java.util.Arrays;
+
+/**
+ * Accès aux distances entre villes, sans imposer de matrice {@code int[n][n]}.
+ * <p>
+ * Les implémentations calculent les distances à la demande à partir des coordonnées
+ * ({@link EuclideanDistances}), les lisent dans un triangle compacté ({@link TriangularMatrix}),
+ * dans une projection mémoire ({@link BinaryMatrix}) ou dans un tableau existant
+ * ({@link ArrayDistances}). Elles sont immuables et peuvent être partagées entre threads.
+ * Integer.MAX_VALUE désigne un arc interdit.
+ */
+public interface DistanceProvider {
+
+    /**
+     * @return Le nombre de villes.
+     */
+    int size();
+
+    /**
+     * @return La distance de la ville from à la ville to.
+     */
+    int distance(int from, int to);
+
+    /**
+     * Retourne les k villes les plus proches d'une ville, triées par distance croissante
+     * (à distance égale, par numéro croissant). L'implémentation par défaut parcourt toutes les villes.
+     *
+     * @param city La ville.
+     * @param k    Nombre de voisins (borné par size() - 1).
+     * @return Les k plus proches voisins.
+     */
+    default int[] nearest(int city, int k) {
+        int n = size();
+        long[] keys = new long[n - 1];
+        int count = 0;
+        for (int j = 0; j < n; j++) {
+            if (j != city) {
+                // distance dans les 32 bits de poids fort, ville dans ceux de poids faible
+                keys[count++] = ((long) distance(city, j) << 32) | j;
+            }
+        }
+        Arrays.sort(keys);
+        int[] neighbors = new int[Math.min(k, n - 1)];
+        for (int r = 0; r < neighbors.length; r++) {
+            neighbors[r] = (int) keys[r];
+        }
+        return neighbors;
+    }
+
+    /**
+     * @return true si distance(i, j) == distance(j, i) pour tout couple de villes.
+     */
+    default boolean isSymmetric() {
+        int n = size();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (distance(i, j) != distance(j, i)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true si au moins un arc (i, j), i ≠ j, est interdit (Integer.MAX_VALUE).
+     */
+    default boolean hasForbiddenEdges() {
+        int n = size();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j && distance(i, j) == Integer.MAX_VALUE) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Empreinte de l'instance, pour vérifier qu'un point de contrôle ou un processus distant porte
+     * sur les mêmes distances : hachage 64 bits (FNV-1a) du nombre de villes et de toutes les
+     * distances, ligne par ligne. Parcourt les C² distances.
+     *
+     * @return L'empreinte, égale pour deux instances de mêmes distances quel que soit leur format.
+     */
+    default long fingerprint() {
+        int n = size();
+        long hash = (0xcbf29ce484222325L ^ n) * 0x100000001b3L;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                hash = (hash ^ distance(i, j)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Enveloppe une matrice pleine. Une matrice symétrique à diagonale nulle est compactée en
+     * triangle ({@link TriangularMatrix}) : la matrice d'origine peut alors être libérée.
+     *
+     * @param matrix La matrice des distances.
+     * @return Les distances de la matrice.
+     */
+    static DistanceProvider of(int[][] matrix) {
+        int n = matrix.length;
+        for (int i = 0; i < n; i++) {
+            if (matrix[i][i] != 0) {
+                return new ArrayDistances(matrix);
+            }
+            for (int j = i + 1; j < n; j++) {
+                if (matrix[i][j] != matrix[j][i]) {
+                    return new ArrayDistances(matrix);
+                }
+            }
+        }
+        return TriangularMatrix.of(matrix);
+    }
+}
@@ -0,0 +1,363 @@
+package org.example.threadpackage;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Coordinateur d'une résolution répartie sur plusieurs processus ({@link DistributedWorker}),
+ * sur la même machine ou sur plusieurs.
+ * <p>
+ * Le coordinateur ne calcule pas : il accepte les processus de calcul (à tout moment de la
+ * résolution), tient la meilleure tournée et la meilleure borne de l'ensemble et les diffuse à
+ * tous, relaie le domaine des arcs du dernier processus qui l'a envoyé aux autres, et décide de
+ * l'arrêt avec le même budget que {@link SolverCoordinator} (temps, écart, preuve d'optimalité
+ * envoyée par le processus qui porte le modèle complet). Un processus n'est accepté que si
+ * l'empreinte de ses distances ({@link DistanceProvider#fingerprint()}) est celle de l'instance
+ * du coordinateur, et chaque tournée reçue est vérifiée (cycle hamiltonien, longueur
+ * recalculée) avant d'être diffusée.
+ * <p>
+ * La perte d'un processus (connexion fermée ou muette) n'arrête pas la résolution : les autres
+ * continuent, et un processus qui se (re)connecte reçoit aussitôt la meilleure tournée, la
+ * borne et le domaine courants.
+ */
+public final class DistributedCoordinator implements AutoCloseable {
+
+    private final DistanceProvider distances;
+    private final long fingerprint;
+    private final ServerSocket server;
+    private final SharedSolution sharedSolution = new SharedSolution();
+    private final EdgeDomainStore edgeDomain;
+    private final List<PeerLink> links = new CopyOnWriteArrayList<>();
+    private final AtomicInteger joinedWorkers = new AtomicInteger();
+    private final AtomicInteger lostWorkers = new AtomicInteger();
+    /**
+     * Processus dont la tournée ou le domaine est en cours de diffusion : les écouteurs tournent
+     * sur le thread de lecture de sa connexion, et ne lui renvoient pas ce qu'il a envoyé.
+     */
+    private final ThreadLocal<PeerLink> origin = new ThreadLocal<>();
+    private long timeLimitMillis;
+    private double targetGap = -1;
+    private volatile SolverCoordinator.StopReason stopReason;
+    private volatile Thread watcher;
+    private long startNanos;
+    private long endNanos;
+
+    /**
+     * Ouvre le port d'écoute ; les processus de calcul peuvent s'y connecter dès ce moment.
+     *
+     * @param distances Les distances de l'instance, pour vérifier les tournées reçues.
+     * @param port      Le port d'écoute (0 : un port libre, voir {@link #getPort()}).
+     * @throws IOException Si le port ne peut pas être ouvert.
+     */
+    public DistributedCoordinator(DistanceProvider distances, int port) throws IOException {
+        this.distances = distances;
+        this.fingerprint = distances.fingerprint();
+        this.edgeDomain = new EdgeDomainStore(distances.size());
+        this.server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(new InetSocketAddress(port));
+        sharedSolution.addListener(new SharedSolution.Listener() {
+            @Override
+            public void onTour(SharedSolution.Tour tour) {
+                PeerLink sender = origin.get();
+                for (PeerLink link : links) {
+                    if (link != sender) {
+                        link.sendTour(tour);
+                    }
+                }
+                LockSupport.unpark(watcher);
+            }
+
+            @Override
+            public void onLowerBound(long bound) {
+                links.forEach(link -> link.sendLowerBound(bound));
+                LockSupport.unpark(watcher);
+            }
+
+            @Override
+            public void onStop() {
+                LockSupport.unpark(watcher);
+            }
+        });
+        edgeDomain.addListener(() -> {
+            EdgeDomainStore.Snapshot snapshot = edgeDomain.snapshot();
+            PeerLink sender = origin.get();
+            for (PeerLink link : links) {
+                if (link != sender) {
+                    link.sendDomain(snapshot);
+                }
+            }
+        });
+    }
+
+    /**
+     * @param millis Temps de calcul maximal (0 : illimité).
+     */
+    public DistributedCoordinator withTimeLimit(long millis) {
+        this.timeLimitMillis = millis;
+        return this;
+    }
+
+    /**
+     * @param gap Écart relatif en deçà duquel la résolution s'arrête ; négatif : ignoré.
+     */
+    public DistributedCoordinator withTargetGap(double gap) {
+        this.targetGap = gap;
+        return this;
+    }
+
+    /**
+     * @return Le port d'écoute.
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accepte les processus de calcul et surveille le budget sur le thread appelant, puis arrête
+     * tous les processus.
+     *
+     * @return La raison de l'arrêt.
+     * @throws InterruptedException Si l'attente de l'arrêt des processus est interrompue.
+     */
+    public SolverCoordinator.StopReason run() throws InterruptedException {
+        startNanos = System.nanoTime();
+        watcher = Thread.currentThread();
+        Thread acceptor = new Thread(this::accept, "coordinator-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis);
+        while (!sharedSolution.isStopped()) {
+            if (isGapReached()) {
+                stop(SolverCoordinator.StopReason.GAP);
+            } else if (timeLimitMillis > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    stop(SolverCoordinator.StopReason.TIME_LIMIT);
+                } else {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        stop(SolverCoordinator.StopReason.EXTERNAL);
+
+        closeServer();
+        for (PeerLink link : links) {
+            link.sendStop();
+        }
+        for (PeerLink link : links) {
+            link.drain(PeerLink.HEARTBEAT_MILLIS);
+        }
+        endNanos = System.nanoTime();
+        return stopReason;
+    }
+
+    private void accept() {
+        while (!sharedSolution.isStopped()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                return; // port fermé à l'arrêt
+            }
+            try {
+                PeerLink.Streams streams = new PeerLink.Streams(socket);
+                int cityCount = distances.size();
+                PeerLink.readHello(streams, cityCount, fingerprint);
+                int id = freeId();
+                joinedWorkers.incrementAndGet();
+                PeerLink.assign(streams, id);
+                PeerLink link = new PeerLink(socket, streams, cityCount, id, new WorkerHandler());
+                links.add(link);
+                // état courant pour un processus arrivé en cours de résolution
+                SharedSolution.Tour best = sharedSolution.getBestTour();
+                if (best != null) {
+                    link.sendTour(best);
+                }
+                if (sharedSolution.getLowerBound() > 0) {
+                    link.sendLowerBound(sharedSolution.getLowerBound());
+                }
+                if (edgeDomain.version() > 0) {
+                    link.sendDomain(edgeDomain.snapshot());
+                }
+                link.start();
+                System.out.printf("Processus %d connecté depuis %s (%d actifs)%n", id,
+                        socket.getRemoteSocketAddress(), getActiveWorkers());
+            } catch (IOException e) {
+                System.out.println("Processus refusé : " + e.getMessage());
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // déjà fermée
+                }
+            }
+        }
+    }
+
+    /**
+     * Le numéro d'un processus fixe les rangs de ses modèles ({@link DistributedWorker}) : le plus
+     * petit numéro libre est attribué, pour qu'un processus remplaçant un processus perdu reprenne
+     * ses rangs, modèle complet compris.
+     */
+    private int freeId() {
+        int id = 0;
+        while (true) {
+            int candidate = id;
+            if (links.stream().noneMatch(link -> link.getId() == candidate)) {
+                return id;
+            }
+            id++;
+        }
+    }
+
+    /**
+     * Messages d'un processus de calcul.
+     */
+    private final class WorkerHandler implements PeerLink.Handler {
+        private volatile boolean done;
+
+        @Override
+        public void onTour(PeerLink link, int[] successors, long length, SharedSolution.Source source) {
+            long checked = PermutationEngine.successorLength(successors, distances);
+            if (checked != length || checked == PermutationEngine.INFEASIBLE) {
+                System.out.printf("Tournée du processus %d rejetée (longueur annoncée %d, calculée %d)%n",
+                        link.getId(), length, checked);
+                return;
+            }
+            origin.set(link);
+            try {
+                sharedSolution.offerTour(successors, length, SharedSolution.Source.REMOTE);
+            } finally {
+                origin.remove();
+            }
+        }
+
+        @Override
+        public void onLowerBound(PeerLink link, long bound) {
+            sharedSolution.offerLowerBound(bound);
+        }
+
+        @Override
+        public void onDomain(PeerLink link, long[] bits) {
+            origin.set(link);
+            try {
+                edgeDomain.publish(bits);
+            } finally {
+                origin.remove();
+            }
+        }
+
+        @Override
+        public void onDone(PeerLink link, boolean proof) {
+            done = true;
+            // le modèle complet a épuisé sa recherche sous la meilleure tournée partagée : elle est optimale
+            if (proof) {
+                stop(SolverCoordinator.StopReason.COMPLETED);
+            }
+        }
+
+        @Override
+        public void onStop(PeerLink link) {
+            link.close();
+        }
+
+        @Override
+        public void onClose(PeerLink link, IOException cause) {
+            links.remove(link);
+            if (done) {
+                System.out.printf("Processus %d terminé, %d actifs%n", link.getId(), getActiveWorkers());
+            } else if (!sharedSolution.isStopped()) {
+                lostWorkers.incrementAndGet();
+                System.out.printf("Processus %d perdu (%s), %d actifs%n", link.getId(),
+                        cause == null ? "connexion fermée" : cause.getMessage(), getActiveWorkers());
+            }
+        }
+    }
+
+    private boolean isGapReached() {
+        double gap = getGap();
+        return targetGap >= 0 && gap >= 0 && gap <= targetGap;
+    }
+
+    private synchronized void stop(SolverCoordinator.StopReason reason) {
+        if (stopReason == null) {
+            stopReason = reason;
+        }
+        sharedSolution.stopExecution();
+    }
+
+    private void closeServer() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            // déjà fermé
+        }
+    }
+
+    /**
+     * Arrête la résolution (raison {@link SolverCoordinator.StopReason#EXTERNAL}).
+     */
+    @Override
+    public void close() {
+        stop(SolverCoordinator.StopReason.EXTERNAL);
+        closeServer();
+    }
+
+    /**
+     * @return La meilleure tournée reçue, ou null.
+     */
+    public SharedSolution.Tour getBestTour() {
+        return sharedSolution.getBestTour();
+    }
+
+    public long getLowerBound() {
+        return sharedSolution.getLowerBound();
+    }
+
+    /**
+     * @return L'écart relatif entre la meilleure tournée et la borne, ou -1 sans tournée.
+     */
+    public double getGap() {
+        SharedSolution.Tour best = sharedSolution.getBestTour();
+        if (best == null) {
+            return -1;
+        }
+        long length = best.getLength();
+        return length <= 0 ? 0.0 : Math.max(0, length - sharedSolution.getLowerBound()) / (double) length;
+    }
+
+    public int getActiveWorkers() {
+        return links.size();
+    }
+
+    /**
+     * @return Le nombre de processus connectés depuis le début de la résolution.
+     */
+    public int getJoinedWorkers() {
+        return joinedWorkers.get();
+    }
+
+    /**
+     * @return Le nombre de processus perdus avant l'arrêt, sans avoir signalé la fin de leur recherche.
+     */
+    public int getLostWorkers() {
+        return lostWorkers.get();
+    }
+
+    /**
+     * @return La durée de la résolution en millisecondes, arrêt des processus compris.
+     */
+    public long getElapsedMillis() {
+        return ((endNanos == 0 ? System.nanoTime() : endNanos) - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,192 @@
+package org.example.threadpackage;
+
+import org.chocosolver.solver.ParallelPortfolio;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Processus de calcul d'une résolution répartie : un portefeuille PPC et des îles de l'AG,
+ * comme {@link Main}, reliés à un {@link DistributedCoordinator} par une {@link PeerLink}.
+ * <p>
+ * Les tournées, bornes et domaines des arcs produits ici sont envoyés au coordinateur ; ceux
+ * des autres processus, reçus du coordinateur, sont proposés à la {@link SharedSolution} locale
+ * (origine {@link SharedSolution.Source#REMOTE}, qui n'est pas renvoyée) et bornent donc aussi
+ * les modèles locaux. Les processus se partagent une seule suite de rangs de modèles : seul le
+ * processus 0 porte le modèle complet, les autres ne font que des LNS avec d'autres
+ * heuristiques, ce qui diversifie la recherche à mesure que les processus s'ajoutent.
+ * <p>
+ * La résolution s'arrête sur ordre du coordinateur ou à la perte de la connexion.
+ */
+public final class DistributedWorker {
+
+    private static final long CONNECT_RETRY_MILLIS = 500;
+
+    private final DistanceProvider distances;
+    private final LaunchOptions options;
+    private final String host;
+    private final int port;
+    private long connectTimeoutMillis = 10_000;
+    private int id = -1;
+    private SolverCoordinator.StopReason stopReason;
+
+    /**
+     * @param distances Les distances de l'instance.
+     * @param options   Les paramètres résolus ({@link LaunchOptions#resolve}) : modèles, îles, threads…
+     * @param host      L'hôte du coordinateur.
+     * @param port      Son port.
+     */
+    public DistributedWorker(DistanceProvider distances, LaunchOptions options, String host, int port) {
+        this.distances = distances;
+        this.options = options;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * @param millis Durée pendant laquelle la connexion au coordinateur est retentée.
+     */
+    public DistributedWorker withConnectTimeout(long millis) {
+        this.connectTimeoutMillis = millis;
+        return this;
+    }
+
+    /**
+     * Se connecte au coordinateur et résout jusqu'à son ordre d'arrêt.
+     *
+     * @return La raison de l'arrêt local : {@link SolverCoordinator.StopReason#COMPLETED} si un
+     * modèle complet a terminé sa recherche ici, {@link SolverCoordinator.StopReason#EXTERNAL} sinon.
+     * @throws IOException          Si le coordinateur est injoignable ou refuse le processus.
+     * @throws InterruptedException Si l'attente de l'arrêt est interrompue.
+     */
+    public SolverCoordinator.StopReason run() throws IOException, InterruptedException {
+        int cityCount = distances.size();
+        Socket socket = connect();
+        PeerLink.Streams streams = new PeerLink.Streams(socket);
+        id = PeerLink.hello(streams, cityCount, distances.fingerprint());
+
+        SharedSolution sharedSolution = new SharedSolution();
+        EdgeDomainStore edgeDomain = new EdgeDomainStore(cityCount);
+        RemoteHandler handler = new RemoteHandler(sharedSolution, edgeDomain);
+        PeerLink link = new PeerLink(socket, streams, cityCount, id, handler);
+        sharedSolution.addListener(new SharedSolution.Listener() {
+            @Override
+            public void onTour(SharedSolution.Tour tour) {
+                if (tour.getSource() != SharedSolution.Source.REMOTE) {
+                    link.sendTour(tour);
+                }
+            }
+
+            @Override
+            public void onLowerBound(long bound) {
+                link.sendLowerBound(bound);
+            }
+        });
+        edgeDomain.addListener(() -> {
+            // un domaine reçu est publié par le thread de lecture : il n'est pas renvoyé
+            if (Thread.currentThread() != handler.receiver) {
+                link.sendDomain(edgeDomain.snapshot());
+            }
+        });
+        link.start();
+
+        int models = options.getModels();
+        ParallelPortfolio portfolio = new ParallelPortfolio(false);
+        boolean completeSearch = Main.buildPortfolio(portfolio, distances, id * models, models, options.getCandidates(),
+                options.getHeldKarpIterations(), options.getLnsFailLimit(), edgeDomain, sharedSolution);
+        IslandModel islands = new IslandModel(distances, options.getIslands(), options.getGaThreads(),
+                IslandModel.Topology.RING, options.getMigrationInterval(), edgeDomain, sharedSolution);
+        islands.enableLocalSearch(10, 0.1, 1000, 1_000_000L);
+        if (options.isVectorEvaluation()) {
+            islands.enableVectorEvaluation();
+        }
+        // le budget est celui du coordinateur
+        SolverCoordinator coordinator = new SolverCoordinator(portfolio, islands, sharedSolution)
+                .withCompleteSearch(completeSearch)
+                .withSolutionOutput(false);
+        stopReason = coordinator.run();
+        if (!link.isClosed()) {
+            // seule une recherche complète terminée prouve l'optimalité
+            link.sendDone(stopReason == SolverCoordinator.StopReason.COMPLETED);
+            link.drain(PeerLink.HEARTBEAT_MILLIS);
+        }
+        return stopReason;
+    }
+
+    private Socket connect() throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + connectTimeoutMillis * 1_000_000;
+        while (true) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(host, port), PeerLink.TIMEOUT_MILLIS);
+                return socket;
+            } catch (ConnectException e) {
+                socket.close();
+                if (System.nanoTime() >= deadline) {
+                    throw e;
+                }
+                Thread.sleep(CONNECT_RETRY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Messages du coordinateur.
+     */
+    private static final class RemoteHandler implements PeerLink.Handler {
+        private final SharedSolution sharedSolution;
+        private final EdgeDomainStore edgeDomain;
+        private volatile Thread receiver;
+
+        RemoteHandler(SharedSolution sharedSolution, EdgeDomainStore edgeDomain) {
+            this.sharedSolution = sharedSolution;
+            this.edgeDomain = edgeDomain;
+        }
+
+        @Override
+        public void onTour(PeerLink link, int[] successors, long length, SharedSolution.Source source) {
+            sharedSolution.offerTour(successors, length, SharedSolution.Source.REMOTE);
+        }
+
+        @Override
+        public void onLowerBound(PeerLink link, long bound) {
+            sharedSolution.offerLowerBound(bound);
+        }
+
+        @Override
+        public void onDomain(PeerLink link, long[] bits) {
+            receiver = Thread.currentThread();
+            edgeDomain.publish(bits);
+        }
+
+        @Override
+        public void onDone(PeerLink link, boolean proof) {
+        }
+
+        @Override
+        public void onStop(PeerLink link) {
+            sharedSolution.stopExecution();
+        }
+
+        @Override
+        public void onClose(PeerLink link, IOException cause) {
+            sharedSolution.stopExecution();
+        }
+    }
+
+    /**
+     * @return Le numéro attribué par le coordinateur, ou -1 avant la connexion.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return La raison de l'arrêt local, ou null pendant la résolution.
+     */
+    public SolverCoordinator.StopReason getStopReason() {
+        return stopReason;
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.threadpackage;
+
+import org.chocosolver.solver.search.loop.monitors.IMonitorClose;
+import org.chocosolver.solver.search.loop.monitors.IMonitorUpBranch;
+import org.chocosolver.solver.variables.IVariableMonitor;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.events.IEventType;
+
+import java.util.Arrays;
+
+/**
+ * Export incrémental du domaine des variables succ d'un modèle PPC vers un {@link EdgeDomainStore}.
+ * <p>
+ * Un moniteur de variable marque chaque ligne succ[i] modifiée par la propagation. Au moment de
+ * l'export, seules les lignes marquées, ou dont la taille de domaine a changé depuis le dernier
+ * export (restauration lors d'un retour arrière, qui ne déclenche pas d'événement), sont réécrites
+ * dans le tampon privé du modèle avant sa publication. L'export est déclenché par un nombre de
+ * modifications ou par un intervalle de temps, et ne bloque jamais le thread de recherche.
+ */
+public final class DomainExporter implements IMonitorUpBranch, IMonitorClose {
+
+    private final IntVar[] succ;
+    private final EdgeDomainStore edgeDomain;
+    private final long[] domainBuffer;
+    private final long[] dirtyRows;
+    private final int[] exportedSize;
+    private final long minIntervalNanos;
+    private final int changeThreshold;
+    private final int warmupSolutions;
+
+    private int changes = 0;
+    private int solutionsFound = 0;
+    private long callCount = 0;
+    private long lastExport = System.nanoTime();
+
+    /**
+     * Crée l'exporteur et branche un moniteur sur chaque variable succ.
+     *
+     * @param succ             Les variables successeur du modèle.
+     * @param edgeDomain       Le stockage dans lequel publier.
+     * @param minIntervalNanos Délai au-delà duquel un export est déclenché s'il y a eu des modifications.
+     * @param changeThreshold  Nombre de modifications de domaine déclenchant un export.
+     * @param warmupSolutions  Nombre de premières solutions ignorées avant de commencer à exporter.
+     */
+    public DomainExporter(IntVar[] succ, EdgeDomainStore edgeDomain, long minIntervalNanos,
+                          int changeThreshold, int warmupSolutions) {
+        this.succ = succ;
+        this.edgeDomain = edgeDomain;
+        this.domainBuffer = edgeDomain.newBuffer();
+        this.dirtyRows = new long[(succ.length + 63) >>> 6];
+        this.exportedSize = new int[succ.length];
+        this.minIntervalNanos = minIntervalNanos;
+        this.changeThreshold = changeThreshold;
+        this.warmupSolutions = warmupSolutions;
+        Arrays.fill(exportedSize, -1);
+        for (int i = 0; i < succ.length; i++) {
+            succ[i].addMonitor(new RowMonitor(i));
+        }
+    }
+
+    @Override
+    public void afterUpBranch() {
+        if (solutionsFound < warmupSolutions) {
+            return;
+        }
+        if (changes >= changeThreshold
+                || (changes > 0 && (++callCount & 63) == 0 && System.nanoTime() - lastExport >= minIntervalNanos)) {
+            export();
+        }
+    }
+
+    @Override
+    public void afterClose() {
+        solutionsFound++;
+    }
+
+    /**
+     * Réécrit les lignes modifiées dans le tampon puis le publie.
+     */
+    public void export() {
+        long start = System.nanoTime();
+        int C = succ.length;
+        int rows = 0;
+        for (int i = 0; i < C; i++) {
+            IntVar var = succ[i];
+            boolean dirty = (dirtyRows[i >>> 6] & (1L << i)) != 0;
+            if (dirty || var.getDomainSize() != exportedSize[i]) {
+                EdgeDomainStore.clearRow(domainBuffer, C, i);
+                int ub = var.getUB();
+                for (int j = var.getLB(); j <= ub; j = var.nextValue(j)) {
+                    EdgeDomainStore.set(domainBuffer, C, i, j, true);
+                }
+                exportedSize[i] = var.getDomainSize();
+                rows++;
+            }
+        }
+        Arrays.fill(dirtyRows, 0L);
+        changes = 0;
+        edgeDomain.publish(domainBuffer);
+        lastExport = System.nanoTime();
+        edgeDomain.recordExport(lastExport - start, rows);
+    }
+
+    /**
+     * Marque la ligne d'une variable succ à chaque modification de son domaine.
+     */
+    private final class RowMonitor implements IVariableMonitor<IntVar> {
+        private final int row;
+
+        private RowMonitor(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public void onUpdate(IntVar var, IEventType evt) {
+            dirtyRows[row >>> 6] |= 1L << row;
+            changes++;
+        }
+    }
+}
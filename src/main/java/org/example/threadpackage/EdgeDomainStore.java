@@ -0,0 +1,240 @@
+package org.example.threadpackage;
+
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stockage sans verrou des domaines d'arcs (succ[i] -> j) exportés par les modèles PPC.
+ * <p>
+ * Le domaine complet est un unique tableau {@code long[]} contigu de C*C bits (bit à 1 = arc autorisé).
+ * Chaque modèle PPC écrit dans son propre tampon puis le publie : la publication copie le tampon
+ * dans un nouvel instantané immuable et versionné, installé par CAS. Les lecteurs (AG) obtiennent
+ * ainsi toujours un domaine cohérent, sans jamais bloquer les threads de recherche.
+ */
+public final class EdgeDomainStore {
+
+    private final int cityCount;
+    private final int wordCount;
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicReference<Snapshot> current;
+    private final LongAdder exportNanos = new LongAdder();
+    private final LongAdder exportCount = new LongAdder();
+    private final LongAdder exportedRows = new LongAdder();
+    private final CopyOnWriteArrayList<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Crée un stockage où tous les arcs sont autorisés (version 0, aucune publication).
+     *
+     * @param cityCount Le nombre de villes.
+     */
+    public EdgeDomainStore(int cityCount) {
+        this.cityCount = cityCount;
+        this.wordCount = (int) (((long) cityCount * cityCount + 63) >>> 6);
+        this.current = new AtomicReference<>(new Snapshot(cityCount, newBuffer(), 0L, System.nanoTime()));
+    }
+
+    /**
+     * Alloue un tampon d'écriture privé dans lequel tous les arcs sont autorisés.
+     *
+     * @return Un tampon de la taille du domaine.
+     */
+    public long[] newBuffer() {
+        long[] buffer = new long[wordCount];
+        Arrays.fill(buffer, -1L);
+        return buffer;
+    }
+
+    /**
+     * Publie le contenu d'un tampon d'écriture. Le tampon est copié : l'appelant peut continuer
+     * à le modifier immédiatement après l'appel.
+     *
+     * @param buffer Tampon rempli par un modèle PPC.
+     * @return L'instantané installé (ou un instantané plus récent publié entre-temps).
+     */
+    public Snapshot publish(long[] buffer) {
+        long[] bits = new long[wordCount];
+        System.arraycopy(buffer, 0, bits, 0, wordCount);
+        Snapshot next = new Snapshot(cityCount, bits, versions.incrementAndGet(), System.nanoTime());
+        Snapshot previous;
+        do {
+            previous = current.get();
+            if (previous.version > next.version) {
+                return previous; // un autre modèle a publié plus récent
+            }
+        } while (!current.compareAndSet(previous, next));
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+        return next;
+    }
+
+    /**
+     * Abonne un écouteur aux publications. Il est appelé sur le thread de recherche qui publie :
+     * il doit se contenter de réveiller son destinataire.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return Le dernier instantané publié (version 0 tant qu'aucun modèle n'a publié).
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * @return La version du dernier instantané publié.
+     */
+    public long version() {
+        return current.get().version;
+    }
+
+    public int getCityCount() {
+        return cityCount;
+    }
+
+    /**
+     * Comptabilise le temps passé par un thread de recherche à préparer et publier un export.
+     *
+     * @param nanos Durée de l'export.
+     * @param rows  Nombre de lignes succ[i] réécrites.
+     */
+    public void recordExport(long nanos, int rows) {
+        exportNanos.add(nanos);
+        exportCount.increment();
+        exportedRows.add(rows);
+    }
+
+    /**
+     * @return Le temps cumulé (toutes threads de recherche confondues) passé à exporter, en nanosecondes.
+     */
+    public long getExportNanos() {
+        return exportNanos.sum();
+    }
+
+    public long getExportCount() {
+        return exportCount.sum();
+    }
+
+    public long getExportedRows() {
+        return exportedRows.sum();
+    }
+
+    /**
+     * Marque un arc comme autorisé ou interdit dans un tampon.
+     */
+    public static void set(long[] bits, int cityCount, int from, int to, boolean allowed) {
+        long index = (long) from * cityCount + to;
+        int word = (int) (index >>> 6);
+        if (allowed) {
+            bits[word] |= 1L << index;
+        } else {
+            bits[word] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Interdit tous les arcs sortant d'une ville dans un tampon.
+     */
+    public static void clearRow(long[] bits, int cityCount, int from) {
+        long start = (long) from * cityCount;
+        long end = start + cityCount; // exclu
+        int firstWord = (int) (start >>> 6);
+        int lastWord = (int) ((end - 1) >>> 6);
+        long firstMask = -1L << start;
+        long lastMask = -1L >>> (63 - ((end - 1) & 63));
+        if (firstWord == lastWord) {
+            bits[firstWord] &= ~(firstMask & lastMask);
+            return;
+        }
+        bits[firstWord] &= ~firstMask;
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            bits[w] = 0L;
+        }
+        bits[lastWord] &= ~lastMask;
+    }
+
+    /**
+     * Vérifie si un arc est autorisé dans un tampon.
+     */
+    public static boolean isAllowed(long[] bits, int cityCount, int from, int to) {
+        long index = (long) from * cityCount + to;
+        return (bits[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    /**
+     * Instantané immuable du domaine des arcs.
+     */
+    public static final class Snapshot {
+        private final int cityCount;
+        private final long[] bits;
+        private final long version;
+        private final long publishedAt;
+
+        private Snapshot(int cityCount, long[] bits, long version, long publishedAt) {
+            this.cityCount = cityCount;
+            this.bits = bits;
+            this.version = version;
+            this.publishedAt = publishedAt;
+        }
+
+        public boolean isAllowed(int from, int to) {
+            return EdgeDomainStore.isAllowed(bits, cityCount, from, to);
+        }
+
+        public int getCityCount() {
+            return cityCount;
+        }
+
+        /**
+         * @return Le numéro de version, strictement croissant à chaque publication.
+         */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * @return L'âge de l'instantané en nanosecondes.
+         */
+        public long ageNanos() {
+            return System.nanoTime() - publishedAt;
+        }
+
+        /**
+         * @return true si au moins un arc (i, j), i ≠ j, est interdit.
+         */
+        public boolean hasForbiddenEdges() {
+            long allowed = 0;
+            for (long word : bits) {
+                allowed += Long.bitCount(word);
+            }
+            // les bits de remplissage au-delà de C*C restent à 1, la diagonale n'est pas un arc
+            long n = cityCount;
+            allowed -= (long) bits.length * 64 - n * n;
+            for (int i = 0; i < cityCount; i++) {
+                if (isAllowed(i, i)) {
+                    allowed--;
+                }
+            }
+            return allowed < n * (n - 1);
+        }
+
+        /**
+         * @return Les bits du domaine, sans copie : à ne pas modifier.
+         */
+        long[] words() {
+            return bits;
+        }
+
+        /**
+         * @return Une copie des bits du domaine.
+         */
+        public long[] copyBits() {
+            return bits.clone();
+        }
+    }
+}
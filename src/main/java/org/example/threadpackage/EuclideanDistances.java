@@ -0,0 +1,212 @@
+package org.example.threadpackage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Distances euclidiennes arrondies (TSPLIB EUC_2D : entier le plus proche) calculées à la demande
+ * à partir des coordonnées des villes. La mémoire utilisée est linéaire en n.
+ * <p>
+ * Une grille régulière (environ deux villes par case) sert d'index spatial : les plus proches
+ * voisins d'une ville sont cherchés case par case, en anneaux de plus en plus larges, au lieu de
+ * parcourir toutes les villes.
+ */
+public final class EuclideanDistances implements DistanceProvider {
+
+    private final int cityCount;
+    private final double[] x;
+    private final double[] y;
+
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] cellCities;
+
+    /**
+     * @param x Abscisses des villes.
+     * @param y Ordonnées des villes.
+     */
+    public EuclideanDistances(double[] x, double[] y) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("Autant d'abscisses que d'ordonnées sont attendues");
+        }
+        this.cityCount = x.length;
+        this.x = x.clone();
+        this.y = y.clone();
+
+        double loX = Double.POSITIVE_INFINITY, hiX = Double.NEGATIVE_INFINITY;
+        double loY = Double.POSITIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < cityCount; i++) {
+            loX = Math.min(loX, x[i]);
+            hiX = Math.max(hiX, x[i]);
+            loY = Math.min(loY, y[i]);
+            hiY = Math.max(hiY, y[i]);
+        }
+        this.minX = cityCount == 0 ? 0 : loX;
+        this.minY = cityCount == 0 ? 0 : loY;
+        double width = cityCount == 0 ? 1 : Math.max(hiX - loX, 1e-9);
+        double height = cityCount == 0 ? 1 : Math.max(hiY - loY, 1e-9);
+        double cells = Math.max(1, cityCount / 2.0);
+        this.cellSize = Math.max(Math.sqrt(width * height / cells), Math.max(width, height) / cells);
+        this.columns = (int) (width / cellSize) + 1;
+        this.rows = (int) (height / cellSize) + 1;
+
+        // répartition des villes par case (tableaux compacts : début de chaque case, puis villes)
+        this.cellStart = new int[columns * rows + 1];
+        this.cellCities = new int[cityCount];
+        for (int i = 0; i < cityCount; i++) {
+            cellStart[cellOf(i) + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] fill = new int[columns * rows];
+        for (int i = 0; i < cityCount; i++) {
+            int c = cellOf(i);
+            cellCities[cellStart[c] + fill[c]++] = i;
+        }
+    }
+
+    /**
+     * @param cities Coordonnées entières des villes ({x, y}).
+     * @return Les distances entre ces villes.
+     */
+    public static EuclideanDistances of(int[][] cities) {
+        double[] x = new double[cities.length];
+        double[] y = new double[cities.length];
+        for (int i = 0; i < cities.length; i++) {
+            x[i] = cities[i][0];
+            y[i] = cities[i][1];
+        }
+        return new EuclideanDistances(x, y);
+    }
+
+    /**
+     * Lit un fichier de coordonnées (lignes « numéro x y », comme coordonnes.txt).
+     *
+     * @param path Chemin du fichier.
+     * @return Les distances entre les villes du fichier.
+     * @throws IOException Si la lecture échoue.
+     */
+    public static EuclideanDistances read(Path path) throws IOException {
+        return of(MatrixConverter.readCoordinates(path));
+    }
+
+    /**
+     * @return L'abscisse de la ville.
+     */
+    double x(int city) {
+        return x[city];
+    }
+
+    /**
+     * @return L'ordonnée de la ville.
+     */
+    double y(int city) {
+        return y[city];
+    }
+
+    private int cellOf(int city) {
+        return row(y[city]) * columns + column(x[city]);
+    }
+
+    private int column(double value) {
+        return Math.min(columns - 1, (int) ((value - minX) / cellSize));
+    }
+
+    private int row(double value) {
+        return Math.min(rows - 1, (int) ((value - minY) / cellSize));
+    }
+
+    @Override
+    public int size() {
+        return cityCount;
+    }
+
+    @Override
+    public int distance(int from, int to) {
+        double dx = x[from] - x[to];
+        double dy = y[from] - y[to];
+        return (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+    }
+
+    @Override
+    public boolean isSymmetric() {
+        return true;
+    }
+
+    @Override
+    public boolean hasForbiddenEdges() {
+        return false;
+    }
+
+    /**
+     * Plus proches voisins par la grille : les cases sont parcourues en anneaux carrés autour de
+     * la case de la ville, jusqu'à ce qu'aucune ville hors des anneaux parcourus ne puisse être
+     * plus proche que le k-ième voisin trouvé.
+     */
+    @Override
+    public int[] nearest(int city, int k) {
+        int count = Math.min(k, cityCount - 1);
+        long[] best = new long[count];
+        int found = 0;
+        if (count == 0) {
+            return new int[0];
+        }
+        int cx = column(x[city]);
+        int cy = row(y[city]);
+        int maxRing = Math.max(columns, rows);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int gy = cy - ring; gy <= cy + ring; gy++) {
+                if (gy < 0 || gy >= rows) {
+                    continue;
+                }
+                boolean edgeRow = gy == cy - ring || gy == cy + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int gx = cx - ring; gx <= cx + ring; gx += Math.max(step, 1)) {
+                    if (gx < 0 || gx >= columns) {
+                        continue;
+                    }
+                    int c = gy * columns + gx;
+                    for (int p = cellStart[c]; p < cellStart[c + 1]; p++) {
+                        int j = cellCities[p];
+                        if (j == city) {
+                            continue;
+                        }
+                        long key = ((long) distance(city, j) << 32) | j;
+                        if (found < count) {
+                            found = insert(best, found, key);
+                        } else if (key < best[count - 1]) {
+                            insert(best, count - 1, key);
+                        }
+                    }
+                }
+            }
+            // toute ville hors des anneaux parcourus est à une distance d'au moins ring * cellSize
+            if (found == count && (best[count - 1] >>> 32) + 1 < ring * cellSize) {
+                break;
+            }
+        }
+        int[] neighbors = new int[count];
+        for (int r = 0; r < count; r++) {
+            neighbors[r] = (int) best[r];
+        }
+        return neighbors;
+    }
+
+    /**
+     * Insère une clé dans le préfixe trié best[0..size) et retourne la nouvelle taille.
+     */
+    private static int insert(long[] best, int size, long key) {
+        int i = size;
+        while (i > 0 && best[i - 1] > key) {
+            best[i] = best[i - 1];
+            i--;
+        }
+        best[i] = key;
+        return size + 1;
+    }
+}
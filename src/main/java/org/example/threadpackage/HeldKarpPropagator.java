@@ -0,0 +1,343 @@
+package org.example.threadpackage;
+
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.util.ESat;
+import org.chocosolver.util.tools.ArrayUtils;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Propagateur de borne inférieure 1-arbre / Held-Karp pour la longueur totale d'une tournée.
+ * <p>
+ * À partir des domaines courants des variables succ, le graphe non orienté des arêtes encore
+ * possibles est pondéré par min(D[i][j], D[j][i]). Un 1-arbre minimal (arbre couvrant sur les
+ * villes 1..C-1 plus les deux arêtes les moins chères de la ville 0), calculé avec des
+ * multiplicateurs de Lagrange ajustés par sous-gradient, donne une borne inférieure de totDist.
+ * Une arête dont le coût réduit dépasse l'écart entre cette borne et la borne supérieure de
+ * totDist ne peut appartenir à aucune tournée améliorante : les arcs correspondants sont retirés.
+ * <p>
+ * Les multiplicateurs ne sont pas restaurés au retour arrière : toute valeur donne une borne
+ * valide, ils servent de point de départ aux propagations suivantes.
+ * <p>
+ * Le propagateur conserve une matrice de poids C×C : il est destiné aux instances de taille modérée.
+ */
+public final class HeldKarpPropagator extends Propagator<IntVar> {
+
+    private static final int INF = Integer.MAX_VALUE;
+    private static final double EPSILON = 1e-6;
+
+    private final int C;
+    private final DistanceProvider D;
+    private final IntVar[] succ;
+    private final IntVar totDist;
+    private final int rootIterations;
+    private final int iterations;
+
+    private final int[][] weight;
+    private final double[] penalty;
+    private final double[] bestPenalty;
+    private final double[] key;
+    private final int[] parent;
+    private final int[] degree;
+    private final boolean[] inTree;
+    private final double[] pathMax;
+    private final int[] stack;
+    private final int[] adjacencyHead;
+    private final int[] adjacencyNext;
+    private final int[] adjacencyTo;
+    private final LongConsumer rootBound;
+    private boolean firstCall = true;
+
+    /**
+     * @param succ           Les variables successeur.
+     * @param totDist        La variable de longueur totale.
+     * @param D              Les distances entre villes.
+     * @param rootIterations Nombre d'itérations de sous-gradient à la première propagation.
+     * @param iterations     Nombre d'itérations de sous-gradient aux propagations suivantes.
+     */
+    public HeldKarpPropagator(IntVar[] succ, IntVar totDist, DistanceProvider D, int rootIterations, int iterations) {
+        this(succ, totDist, D, rootIterations, iterations, null);
+    }
+
+    /**
+     * @param rootBound Reçoit la borne calculée à la première propagation (à la racine), ou null.
+     *                  Elle n'est une borne de l'instance que si les domaines succ initiaux sont complets.
+     */
+    public HeldKarpPropagator(IntVar[] succ, IntVar totDist, DistanceProvider D, int rootIterations, int iterations,
+                              LongConsumer rootBound) {
+        super(ArrayUtils.append(succ, new IntVar[]{totDist}), PropagatorPriority.VERY_SLOW, false);
+        this.C = succ.length;
+        this.D = D;
+        this.succ = succ;
+        this.totDist = totDist;
+        this.rootIterations = rootIterations;
+        this.iterations = iterations;
+        this.rootBound = rootBound;
+        this.weight = new int[C][C];
+        this.penalty = new double[C];
+        this.bestPenalty = new double[C];
+        this.key = new double[C];
+        this.parent = new int[C];
+        this.degree = new int[C];
+        this.inTree = new boolean[C];
+        this.pathMax = new double[C];
+        this.stack = new int[C];
+        this.adjacencyHead = new int[C];
+        this.adjacencyNext = new int[2 * C];
+        this.adjacencyTo = new int[2 * C];
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        if (C < 3) {
+            return;
+        }
+        buildWeights();
+        boolean root = firstCall;
+        int budget = root ? rootIterations : iterations;
+        firstCall = false;
+
+        double upper = totDist.getUB();
+        double bestBound = Double.NEGATIVE_INFINITY;
+        double lambda = 2.0;
+        int stalled = 0;
+        System.arraycopy(penalty, 0, bestPenalty, 0, C);
+        for (int it = 0; it < Math.max(1, budget); it++) {
+            double bound = oneTree(penalty);
+            if (bound > bestBound + EPSILON) {
+                bestBound = bound;
+                System.arraycopy(penalty, 0, bestPenalty, 0, C);
+                stalled = 0;
+            } else if (++stalled >= 5) {
+                lambda /= 2;
+                stalled = 0;
+            }
+            if (bestBound > upper + EPSILON) {
+                break; // contradiction détectée ci-dessous
+            }
+            double norm = 0;
+            for (int i = 0; i < C; i++) {
+                int g = degree[i] - 2;
+                norm += g * g;
+            }
+            if (norm == 0) {
+                break; // le 1-arbre est une tournée : borne optimale pour ces domaines
+            }
+            // tant qu'aucune tournée n'est connue, la cible est estimée à 10 % au-dessus de la borne
+            double target = Math.min(upper, Math.abs(bestBound) * 1.1 + 1);
+            double gap = Math.max(target - bound, 1.0);
+            double step = lambda * gap / norm;
+            for (int i = 0; i < C; i++) {
+                penalty[i] += step * (degree[i] - 2);
+            }
+        }
+        System.arraycopy(bestPenalty, 0, penalty, 0, C);
+
+        if (root && rootBound != null) {
+            rootBound.accept((long) Math.ceil(bestBound - EPSILON));
+        }
+        totDist.updateLowerBound((int) Math.ceil(bestBound - EPSILON), this);
+        filter(bestBound);
+    }
+
+    /**
+     * Pondère les arêtes possibles d'après les domaines succ courants.
+     */
+    private void buildWeights() {
+        for (int i = 0; i < C; i++) {
+            weight[i][i] = INF;
+            for (int j = i + 1; j < C; j++) {
+                int w = INF;
+                if (succ[i].contains(j)) {
+                    w = D.distance(i, j);
+                }
+                if (succ[j].contains(i)) {
+                    w = Math.min(w, D.distance(j, i));
+                }
+                weight[i][j] = w;
+                weight[j][i] = w;
+            }
+        }
+    }
+
+    /**
+     * Calcule le 1-arbre minimal pour les pénalités données (Prim en O(C²) sur 1..C-1, puis les
+     * deux arêtes les moins chères de la ville 0). Remplit parent[] et degree[].
+     *
+     * @return La borne de Lagrange : coût du 1-arbre moins deux fois la somme des pénalités.
+     */
+    private double oneTree(double[] pi) throws ContradictionException {
+        for (int i = 0; i < C; i++) {
+            key[i] = Double.POSITIVE_INFINITY;
+            inTree[i] = false;
+            degree[i] = 0;
+            parent[i] = -1;
+        }
+        double cost = 0;
+        key[1] = 0;
+        for (int step = 1; step < C; step++) {
+            int u = -1;
+            for (int v = 1; v < C; v++) {
+                if (!inTree[v] && (u < 0 || key[v] < key[u])) {
+                    u = v;
+                }
+            }
+            if (key[u] == Double.POSITIVE_INFINITY) {
+                fails(); // graphe des arêtes possibles non connexe
+            }
+            inTree[u] = true;
+            cost += key[u];
+            if (parent[u] >= 0) {
+                degree[u]++;
+                degree[parent[u]]++;
+            }
+            int[] wu = weight[u];
+            for (int v = 1; v < C; v++) {
+                if (!inTree[v] && wu[v] != INF) {
+                    double w = wu[v] + pi[u] + pi[v];
+                    if (w < key[v]) {
+                        key[v] = w;
+                        parent[v] = u;
+                    }
+                }
+            }
+        }
+        // deux arêtes les moins chères de la ville 0
+        double first = Double.POSITIVE_INFINITY;
+        double second = Double.POSITIVE_INFINITY;
+        int firstCity = -1;
+        int secondCity = -1;
+        int[] w0 = weight[0];
+        for (int v = 1; v < C; v++) {
+            if (w0[v] != INF) {
+                double w = w0[v] + pi[0] + pi[v];
+                if (w < first) {
+                    second = first;
+                    secondCity = firstCity;
+                    first = w;
+                    firstCity = v;
+                } else if (w < second) {
+                    second = w;
+                    secondCity = v;
+                }
+            }
+        }
+        if (secondCity < 0) {
+            fails(); // la ville 0 n'a plus deux voisins possibles
+        }
+        degree[0] = 2;
+        degree[firstCity]++;
+        degree[secondCity]++;
+        cost += first + second;
+        double sum = 0;
+        for (int i = 0; i < C; i++) {
+            sum += pi[i];
+        }
+        return cost - 2 * sum;
+    }
+
+    /**
+     * Retire les arcs dont le coût réduit (surcoût minimal d'un 1-arbre contenant l'arête)
+     * amène la borne au-delà de la borne supérieure de totDist.
+     */
+    private void filter(double bound) throws ContradictionException {
+        double gap = totDist.getUB() - bound;
+        oneTree(penalty);
+        // le 1-arbre recalculé avec les meilleures pénalités définit les coûts réduits
+        double secondOfZero = secondSmallestOfZero();
+        for (int v = 1; v < C; v++) {
+            if (weight[0][v] != INF) {
+                double reduced = weight[0][v] + penalty[0] + penalty[v] - secondOfZero;
+                if (reduced > gap + EPSILON) {
+                    removeEdge(0, v);
+                }
+            }
+        }
+
+        buildAdjacency();
+        for (int root = 1; root < C; root++) {
+            computePathMax(root);
+            int[] wr = weight[root];
+            for (int v = root + 1; v < C; v++) {
+                if (wr[v] != INF) {
+                    double reduced = wr[v] + penalty[root] + penalty[v] - pathMax[v];
+                    if (reduced > gap + EPSILON) {
+                        removeEdge(root, v);
+                    }
+                }
+            }
+        }
+    }
+
+    private double secondSmallestOfZero() {
+        double first = Double.POSITIVE_INFINITY;
+        double second = Double.POSITIVE_INFINITY;
+        for (int v = 1; v < C; v++) {
+            if (weight[0][v] != INF) {
+                double w = weight[0][v] + penalty[0] + penalty[v];
+                if (w < first) {
+                    second = first;
+                    first = w;
+                } else if (w < second) {
+                    second = w;
+                }
+            }
+        }
+        return second;
+    }
+
+    private void buildAdjacency() {
+        Arrays.fill(adjacencyHead, -1);
+        int edges = 0;
+        for (int v = 1; v < C; v++) {
+            int u = parent[v];
+            if (u >= 1) {
+                adjacencyTo[edges] = u;
+                adjacencyNext[edges] = adjacencyHead[v];
+                adjacencyHead[v] = edges++;
+                adjacencyTo[edges] = v;
+                adjacencyNext[edges] = adjacencyHead[u];
+                adjacencyHead[u] = edges++;
+            }
+        }
+    }
+
+    /**
+     * Calcule pour chaque ville v le poids (pénalisé) maximal sur le chemin de l'arbre entre root et v.
+     */
+    private void computePathMax(int root) {
+        for (int v = 0; v < C; v++) {
+            inTree[v] = false;
+        }
+        int top = 0;
+        stack[top++] = root;
+        pathMax[root] = Double.NEGATIVE_INFINITY;
+        inTree[root] = true;
+        while (top > 0) {
+            int u = stack[--top];
+            for (int e = adjacencyHead[u]; e >= 0; e = adjacencyNext[e]) {
+                int v = adjacencyTo[e];
+                if (!inTree[v]) {
+                    inTree[v] = true;
+                    double w = weight[u][v] + penalty[u] + penalty[v];
+                    pathMax[v] = Math.max(pathMax[u], w);
+                    stack[top++] = v;
+                }
+            }
+        }
+    }
+
+    private void removeEdge(int i, int j) throws ContradictionException {
+        succ[i].removeValue(j, this);
+        succ[j].removeValue(i, this);
+    }
+
+    @Override
+    public ESat isEntailed() {
+        return isCompletelyInstantiated() ? ESat.TRUE : ESat.UNDEFINED;
+    }
+}
@@ -0,0 +1,393 @@
+package org.example.threadpackage;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Modèle en îles de l'algorithme génétique : plusieurs populations {@link AG} indépendantes, aux
+ * taux d'opérateurs différents, évoluent sur un même pool de threads et échangent périodiquement
+ * leur meilleure tournée.
+ * <p>
+ * Une île exécute une époque de {@code migrationInterval} générations, envoie sa meilleure
+ * tournée à une île voisine (anneau ou île tirée au hasard), puis se soumet de nouveau au pool :
+ * le nombre d'îles peut ainsi dépasser le nombre de threads. Chaque île a une boîte de réception
+ * d'une place, remplacée sans verrou par le dernier migrant ; elle est vidée au début de l'époque
+ * suivante. Les îles ne partagent rien d'autre que les distances (en lecture seule), le domaine
+ * des arcs et la meilleure solution.
+ * <p>
+ * Une île n'émigre que si sa meilleure tournée s'est améliorée depuis son dernier envoi. Elle
+ * cesse de se soumettre (elle est « garée ») tant qu'aucun domaine n'est publié, ou après
+ * {@link #setStagnationLimit stagnationLimit} époques sans amélioration ni nouvelle donnée :
+ * une nouvelle publication du domaine, une tournée de la PPC, un migrant ou l'arrêt la réveillent.
+ * Aucun thread ne tourne donc à vide.
+ */
+public final class IslandModel {
+
+    /**
+     * Topologie de migration.
+     */
+    public enum Topology {
+        /**
+         * L'île i envoie ses migrants à l'île i + 1.
+         */
+        RING,
+        /**
+         * Chaque migration vise une autre île tirée au hasard.
+         */
+        RANDOM
+    }
+
+    /**
+     * Nombre d'époques sans amélioration ni nouvelle donnée après lequel une île est garée.
+     */
+    public static final int DEFAULT_STAGNATION_LIMIT = 3;
+
+    private final DistanceProvider distances;
+    private final AG[] islands;
+    private final AtomicReferenceArray<int[]> inboxes;
+    private final AtomicReferenceArray<int[][]> populations;
+    private volatile boolean populationSnapshots;
+    private final SplittableRandom[] randoms;
+    private final Topology topology;
+    private final int migrationInterval;
+    private final EdgeDomainStore edgeDomain;
+    private final SharedSolution sharedSolution;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final CountDownLatch finished;
+    private final AtomicIntegerArray parked;
+    private final AtomicLong events = new AtomicLong();
+    private final LongAdder parks = new LongAdder();
+    private final long[] lastBest;
+    private final long[] emigrated;
+    private final int[] stagnantEpochs;
+    private int stagnationLimit = DEFAULT_STAGNATION_LIMIT;
+    private long startNanos;
+    private long endNanos;
+
+    /**
+     * @param distances         Les distances entre les villes, partagées par toutes les îles.
+     * @param islandCount       Nombre d'îles.
+     * @param threadCount       Nombre de threads consacrés à l'AG.
+     * @param topology          Topologie de migration.
+     * @param migrationInterval Nombre de générations entre deux migrations.
+     * @param edgeDomain        Le domaine des arcs publié par la PPC.
+     * @param sharedSolution    L'objet partagé contenant la meilleure solution trouvée.
+     */
+    public IslandModel(DistanceProvider distances, int islandCount, int threadCount, Topology topology,
+                       int migrationInterval, EdgeDomainStore edgeDomain, SharedSolution sharedSolution) {
+        this(distances, islandCount, ownPool(threadCount), true, topology, migrationInterval, edgeDomain,
+                sharedSolution);
+    }
+
+    /**
+     * Îles exécutées sur un pool partagé avec d'autres résolutions ({@link SolverService}) : le pool
+     * n'est pas arrêté à la fin. Dans un pool en mode FIFO ({@code asyncMode}), une île qui se
+     * resoumet passe après les époques déjà en attente, celles des autres résolutions comprises.
+     *
+     * @param pool Le pool partagé.
+     * @see #IslandModel(DistanceProvider, int, int, Topology, int, EdgeDomainStore, SharedSolution)
+     */
+    public IslandModel(DistanceProvider distances, int islandCount, ForkJoinPool pool, Topology topology,
+                       int migrationInterval, EdgeDomainStore edgeDomain, SharedSolution sharedSolution) {
+        this(distances, islandCount, pool, false, topology, migrationInterval, edgeDomain, sharedSolution);
+    }
+
+    private IslandModel(DistanceProvider distances, int islandCount, ForkJoinPool pool, boolean ownsPool,
+                        Topology topology, int migrationInterval, EdgeDomainStore edgeDomain,
+                        SharedSolution sharedSolution) {
+        if (islandCount < 1 || migrationInterval < 1) {
+            throw new IllegalArgumentException("Au moins une île et une génération par époque sont attendues");
+        }
+        this.distances = distances;
+        this.islands = new AG[islandCount];
+        this.inboxes = new AtomicReferenceArray<>(islandCount);
+        this.populations = new AtomicReferenceArray<>(islandCount);
+        this.randoms = new SplittableRandom[islandCount];
+        this.topology = topology;
+        this.migrationInterval = migrationInterval;
+        this.edgeDomain = edgeDomain;
+        this.sharedSolution = sharedSolution;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.finished = new CountDownLatch(islandCount);
+        this.parked = new AtomicIntegerArray(islandCount);
+        this.lastBest = new long[islandCount];
+        this.emigrated = new long[islandCount];
+        this.stagnantEpochs = new int[islandCount];
+        Arrays.fill(lastBest, PermutationEngine.INFEASIBLE);
+        Arrays.fill(emigrated, PermutationEngine.INFEASIBLE);
+        SplittableRandom seeds = new SplittableRandom(System.nanoTime());
+        for (int i = 0; i < islandCount; i++) {
+            islands[i] = new AG(distances);
+            randoms[i] = seeds.split();
+            // la première île garde les taux par défaut, les autres vont d'une exploration par
+            // croisement à une exploitation par mutation
+            if (i > 0) {
+                double f = islandCount == 2 ? 1.0 : (i - 1) / (double) (islandCount - 2);
+                islands[i].setOperatorRates(0.05 + 0.25 * f, 0.75 - 0.6 * f);
+            }
+        }
+    }
+
+    private static ForkJoinPool ownPool(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Au moins un thread est attendu");
+        }
+        return new ForkJoinPool(threadCount);
+    }
+
+    /**
+     * Active la recherche locale sur toutes les îles (voir {@link AG#enableLocalSearch}).
+     */
+    public void enableLocalSearch(int neighborCount, double rate, int maxMoves, long timeBudgetNanos) {
+        for (AG island : islands) {
+            island.enableLocalSearch(neighborCount, rate, maxMoves, timeBudgetNanos);
+        }
+    }
+
+    /**
+     * Active l'évaluation vectorielle des tournées sur toutes les îles (voir {@link AG#enableVectorEvaluation}) ;
+     * la copie aplatie des distances est construite une fois et partagée.
+     */
+    public void enableVectorEvaluation() {
+        TourEvaluator.FlatTable table = TourEvaluator.flatten(distances);
+        for (AG island : islands) {
+            island.enableVectorEvaluation(table);
+        }
+    }
+
+    /**
+     * @param epochs Nombre d'époques sans progrès avant de garer une île (0 : jamais).
+     */
+    public void setStagnationLimit(int epochs) {
+        this.stagnationLimit = epochs;
+    }
+
+    /**
+     * Fait copier à chaque île sa population à la fin de chaque époque (voir {@link #getPopulations()}).
+     */
+    public void enablePopulationSnapshots() {
+        this.populationSnapshots = true;
+    }
+
+    /**
+     * @return La dernière copie de la population de chaque île (null pour une île sans copie).
+     * Les tableaux ne sont plus modifiés après leur publication.
+     */
+    public int[][][] getPopulations() {
+        int[][][] copies = new int[islands.length][][];
+        for (int i = 0; i < islands.length; i++) {
+            copies[i] = populations.get(i);
+        }
+        return copies;
+    }
+
+    /**
+     * Ensemence les îles avec des populations sauvegardées, à appeler avant {@link #start()}.
+     * L'île i reçoit la population i modulo leur nombre ; les populations null sont ignorées.
+     *
+     * @param saved Populations (ordres de visite des villes).
+     * @throws IllegalArgumentException Si un individu n'est pas une permutation des villes ; aucune
+     *                                  île n'est alors ensemencée.
+     */
+    public void seedPopulations(int[][][] saved) {
+        if (saved.length == 0) {
+            return;
+        }
+        for (int[][] population : saved) {
+            for (int k = 0; population != null && k < population.length; k++) {
+                if (!PermutationEngine.isPermutation(population[k], edgeDomain.getCityCount())) {
+                    throw new IllegalArgumentException("Population sauvegardée invalide : l'individu " + k
+                            + " n'est pas une permutation des villes");
+                }
+            }
+        }
+        for (int i = 0; i < islands.length; i++) {
+            int[][] population = saved[i % saved.length];
+            if (population != null) {
+                islands[i].seedPopulation(population);
+                populations.set(i, population);
+            }
+        }
+    }
+
+    /**
+     * Soumet toutes les îles au pool. Elles s'arrêtent avec {@link SharedSolution#stopExecution()}.
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+        edgeDomain.addListener(this::signal);
+        sharedSolution.addListener(new SharedSolution.Listener() {
+            @Override
+            public void onTour(SharedSolution.Tour tour) {
+                // les tournées de l'AG sont déjà dans les populations
+                if (tour.getSource() != SharedSolution.Source.GA) {
+                    signal();
+                }
+            }
+
+            @Override
+            public void onStop() {
+                signal();
+            }
+        });
+        for (int i = 0; i < islands.length; i++) {
+            int island = i;
+            pool.execute(() -> epoch(island));
+        }
+    }
+
+    /**
+     * Une époque d'une île : application du domaine des arcs courant et du dernier migrant reçu,
+     * évolution, puis émigration de la meilleure tournée si elle s'est améliorée.
+     */
+    private void epoch(int island) {
+        if (sharedSolution.isStopped()) {
+            finished.countDown();
+            return;
+        }
+        long seen = events.get();
+        boolean idle;
+        try {
+            AG ag = islands[island];
+            EdgeDomainStore.Snapshot snapshot = edgeDomain.snapshot();
+            if (snapshot.version() == 0) {
+                idle = true; // aucun modèle PPC n'a encore publié son domaine
+            } else {
+                boolean applied = ag.initializeWithConnectionsBlocks(snapshot);
+                if (applied) {
+                    sharedSolution.getMetrics().recordDomainAge(snapshot.ageNanos());
+                }
+                int[] migrant = inboxes.getAndSet(island, null);
+                if (migrant != null) {
+                    ag.immigrate(migrant);
+                }
+                ag.runAlgorithm(migrationInterval, sharedSolution);
+                if (populationSnapshots) {
+                    populations.set(island, ag.getPopulation());
+                }
+                long best = ag.getBestLength();
+                if (best < lastBest[island] || applied || migrant != null) {
+                    stagnantEpochs[island] = 0;
+                } else {
+                    stagnantEpochs[island]++;
+                }
+                lastBest[island] = Math.min(lastBest[island], best);
+                if (islands.length > 1 && best < emigrated[island]) {
+                    emigrated[island] = best;
+                    int target = target(island);
+                    inboxes.set(target, ag.getBestTour());
+                    wake(target);
+                }
+                idle = stagnationLimit > 0 && stagnantEpochs[island] >= stagnationLimit;
+            }
+        } catch (RuntimeException | Error e) {
+            finished.countDown();
+            throw e;
+        }
+        if (idle) {
+            park(island, seen);
+        } else {
+            pool.execute(() -> epoch(island));
+        }
+    }
+
+    /**
+     * Gare une île. Un événement survenu pendant son époque n'a pu réveiller personne : elle est
+     * alors resoumise aussitôt.
+     */
+    private void park(int island, long seen) {
+        parks.increment();
+        parked.set(island, 1);
+        if (events.get() != seen || inboxes.get(island) != null) {
+            wake(island);
+        }
+    }
+
+    /**
+     * Réveille toutes les îles garées après une nouvelle donnée.
+     */
+    private void signal() {
+        events.incrementAndGet();
+        for (int i = 0; i < islands.length; i++) {
+            wake(i);
+        }
+    }
+
+    private void wake(int island) {
+        if (parked.compareAndSet(island, 1, 0)) {
+            try {
+                pool.execute(() -> epoch(island));
+            } catch (RejectedExecutionException e) {
+                // le pool a été arrêté de force (awaitTermination a expiré)
+            }
+        }
+    }
+
+    private int target(int island) {
+        if (topology == Topology.RING) {
+            return (island + 1) % islands.length;
+        }
+        int other = randoms[island].nextInt(islands.length - 1);
+        return other >= island ? other + 1 : other;
+    }
+
+    /**
+     * Attend la fin de toutes les îles (après {@link SharedSolution#stopExecution()}) puis libère le pool.
+     * Une île s'arrête au plus tard à la fin de la génération en cours ; si le délai expire
+     * malgré tout, les threads du pool sont interrompus. Un pool partagé n'est ni arrêté ni interrompu.
+     *
+     * @param timeout Délai maximal d'attente.
+     * @param unit    Unité du délai.
+     * @return true si toutes les îles se sont arrêtées dans le délai.
+     * @throws InterruptedException Si l'attente est interrompue.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        boolean done = finished.await(timeout, unit);
+        endNanos = System.nanoTime();
+        if (!ownsPool) {
+            return done;
+        }
+        if (done) {
+            pool.shutdown();
+        } else {
+            pool.shutdownNow();
+        }
+        return done;
+    }
+
+    /**
+     * @return Le nombre de fois où une île a été garée faute de nouvelle donnée.
+     */
+    public long getParkCount() {
+        return parks.sum();
+    }
+
+    /**
+     * @return Le nombre total de générations exécutées par les îles.
+     */
+    public long getGenerations() {
+        long total = 0;
+        for (AG island : islands) {
+            total += island.getGenerations();
+        }
+        return total;
+    }
+
+    /**
+     * @return Le nombre total de générations par seconde depuis le démarrage des îles.
+     */
+    public double getGenerationsPerSecond() {
+        long elapsed = (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+        return elapsed <= 0 ? 0.0 : getGenerations() * 1e9 / elapsed;
+    }
+}
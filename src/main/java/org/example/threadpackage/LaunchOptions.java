@@ -0,0 +1,376 @@
+package org.example.threadpackage;
+
+import java.util.Locale;
+
+/**
+ * Paramètres d'une résolution lancée par {@link Main}, modifiables en ligne de commande.
+ * <p>
+ * Le nombre de modèles PPC, le nombre de threads de l'AG et les listes de candidats sont par
+ * défaut choisis d'après l'instance et la machine ({@link #resolve}) : les cœurs disponibles
+ * sont partagés entre la PPC et l'AG, et le nombre de modèles est limité par la mémoire estimée
+ * de chaque modèle ({@link PPC#estimateModelBytes}) rapportée au tas maximal de la JVM. Lorsque
+ * même un modèle à tables complètes ne tient pas, les modèles utilisent des listes de candidats.
+ */
+public final class LaunchOptions {
+
+    /**
+     * Valeur d'un paramètre choisi par {@link #resolve}.
+     */
+    public static final int AUTO = -1;
+
+    /**
+     * Part du tas maximal réservée aux modèles PPC ; le reste sert à l'AG, aux domaines
+     * partagés et à la recherche elle-même.
+     */
+    static final double MODEL_HEAP_SHARE = 0.6;
+
+    /**
+     * Nombre de candidats par ville lorsque les tables complètes ne tiennent pas en mémoire.
+     */
+    static final int AUTO_CANDIDATES = 10;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage : Main [fichier] [options]",
+            "  --help                     affiche ces options",
+            "  --file FICHIER             instance (matrice texte, .bin ou coordonnées)",
+            "  --models N                 modèles PPC du portefeuille (auto)",
+            "  --islands N                îles de l'AG",
+            "  --ga-threads N             threads de l'AG (auto)",
+            "  --migration N              générations entre deux migrations",
+            "  --vector                   évaluation vectorielle des tournées de l'AG (API Vector)",
+            "  --candidates K             candidats par ville, 0 : tables complètes (auto)",
+            "  --held-karp N              itérations Held-Karp à la racine, 0 : sans borne",
+            "  --lns N                    échecs par voisinage LNS, 0 : modèles complets",
+            "  --time MS                  temps de calcul, 0 : illimité",
+            "  --gap G                    écart relatif cible, < 0 : ignoré",
+            "  --metrics FICHIER|none     export des mesures",
+            "  --metrics-interval MS",
+            "  --checkpoint FICHIER|none  point de contrôle",
+            "  --checkpoint-interval MS",
+            "  --resume                   reprise depuis le point de contrôle",
+            "  --cluster-size N           mode décomposition, N villes par groupe, 0 : désactivé",
+            "  --cluster-time MS          temps de calcul de chaque groupe",
+            "  --serve RÉPERTOIRE         mode service : résout les demandes *.job du répertoire",
+            "  --jobs N                   demandes résolues en même temps en mode service (auto)",
+            "  --max-job-time MS          temps de calcul maximal d'une demande, 0 : celui de la demande",
+            "  --coordinator PORT         résolution répartie : coordinateur à l'écoute sur PORT",
+            "  --worker HÔTE:PORT         résolution répartie : processus de calcul du coordinateur");
+
+    private String file = "distance_matrix76.txt";
+    private int models = AUTO;
+    private int islands = 4;
+    private int gaThreads = AUTO;
+    private int migrationInterval = 500;
+    private boolean vectorEvaluation = false;
+    private int candidates = AUTO;
+    private int heldKarpIterations = 200;
+    private int lnsFailLimit = 200;
+    private long timeLimitMillis = 60_000;
+    private double targetGap = 0.0;
+    private String metricsFile = "metrics.jsonl";
+    private long metricsIntervalMillis = 1000;
+    private String checkpointFile = "checkpoint" + Checkpoint.EXTENSION;
+    private long checkpointIntervalMillis = 60_000;
+    private boolean resume = false;
+    private boolean help = false;
+    private int clusterSize = 0;
+    private long clusterTimeMillis = 10_000;
+    private String serveDirectory = null;
+    private int jobs = AUTO;
+    private long maxJobMillis = 0;
+    private int coordinatorPort = -1;
+    private String workerHost = null;
+    private int workerPort = -1;
+
+    private long modelBytes;
+
+    private LaunchOptions() {
+    }
+
+    /**
+     * @return Les paramètres par défaut.
+     */
+    public static LaunchOptions defaults() {
+        return new LaunchOptions();
+    }
+
+    /**
+     * Lit les paramètres de la ligne de commande ; ceux qui ne sont pas donnés gardent leur valeur
+     * par défaut. Un argument qui n'est pas une option désigne le fichier de l'instance.
+     *
+     * @param args Les arguments de la ligne de commande.
+     * @return Les paramètres.
+     * @throws IllegalArgumentException Si une option est inconnue, incomplète ou mal formée.
+     */
+    public static LaunchOptions parse(String[] args) {
+        LaunchOptions options = new LaunchOptions();
+        for (int a = 0; a < args.length; a++) {
+            String arg = args[a];
+            if (!arg.startsWith("--")) {
+                options.file = arg;
+                continue;
+            }
+            switch (arg) {
+                case "--vector" -> options.vectorEvaluation = true;
+                case "--resume" -> options.resume = true;
+                case "--help" -> options.help = true;
+                default -> {
+                    if (a + 1 >= args.length) {
+                        throw new IllegalArgumentException("Valeur manquante pour " + arg);
+                    }
+                    options.set(arg, args[++a]);
+                }
+            }
+        }
+        return options;
+    }
+
+    private void set(String option, String value) {
+        try {
+            switch (option) {
+                case "--file" -> file = value;
+                case "--models" -> models = positive(option, Integer.parseInt(value));
+                case "--islands" -> islands = positive(option, Integer.parseInt(value));
+                case "--ga-threads" -> gaThreads = positive(option, Integer.parseInt(value));
+                case "--migration" -> migrationInterval = positive(option, Integer.parseInt(value));
+                case "--candidates" -> candidates = nonNegative(option, Integer.parseInt(value));
+                case "--held-karp" -> heldKarpIterations = nonNegative(option, Integer.parseInt(value));
+                case "--lns" -> lnsFailLimit = nonNegative(option, Integer.parseInt(value));
+                case "--time" -> timeLimitMillis = nonNegative(option, Long.parseLong(value));
+                case "--gap" -> targetGap = Double.parseDouble(value);
+                case "--metrics" -> metricsFile = "none".equals(value) ? null : value;
+                case "--metrics-interval" -> metricsIntervalMillis = positive(option, Long.parseLong(value));
+                case "--checkpoint" -> checkpointFile = "none".equals(value) ? null : value;
+                case "--checkpoint-interval" -> checkpointIntervalMillis = positive(option, Long.parseLong(value));
+                case "--cluster-size" -> clusterSize = nonNegative(option, Integer.parseInt(value));
+                case "--cluster-time" -> clusterTimeMillis = nonNegative(option, Long.parseLong(value));
+                case "--serve" -> serveDirectory = value;
+                case "--jobs" -> jobs = positive(option, Integer.parseInt(value));
+                case "--max-job-time" -> maxJobMillis = nonNegative(option, Long.parseLong(value));
+                case "--coordinator" -> coordinatorPort = port(option, Integer.parseInt(value));
+                case "--worker" -> {
+                    int colon = value.lastIndexOf(':');
+                    if (colon <= 0) {
+                        throw new IllegalArgumentException(option + " attend HÔTE:PORT : " + value);
+                    }
+                    workerHost = value.substring(0, colon);
+                    workerPort = port(option, Integer.parseInt(value.substring(colon + 1)));
+                }
+                default -> throw new IllegalArgumentException("Option inconnue : " + option);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valeur invalide pour " + option + " : " + value);
+        }
+    }
+
+    private static int positive(String option, int value) {
+        return (int) positive(option, (long) value);
+    }
+
+    private static long positive(String option, long value) {
+        if (value < 1) {
+            throw new IllegalArgumentException(option + " attend une valeur positive : " + value);
+        }
+        return value;
+    }
+
+    private static int nonNegative(String option, int value) {
+        return (int) nonNegative(option, (long) value);
+    }
+
+    private static long nonNegative(String option, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(option + " attend une valeur positive ou nulle : " + value);
+        }
+        return value;
+    }
+
+    private static int port(String option, int value) {
+        if (value < 0 || value > 65535) {
+            throw new IllegalArgumentException(option + " attend un port valide : " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Choisit les paramètres laissés à {@link #AUTO} d'après la machine.
+     *
+     * @param cityCount Le nombre de villes de l'instance.
+     * @return Ces paramètres.
+     */
+    public LaunchOptions resolve(int cityCount) {
+        Runtime runtime = Runtime.getRuntime();
+        return resolve(cityCount, runtime.availableProcessors(), runtime.maxMemory());
+    }
+
+    /**
+     * Choisit les paramètres laissés à {@link #AUTO} : un quart des cœurs (au moins un) pour
+     * l'AG, le reste pour la PPC, dans la limite de {@link #MODEL_HEAP_SHARE} du tas pour
+     * l'ensemble des modèles. Les tables complètes sont gardées tant qu'au moins deux modèles
+     * (un si la machine n'en prévoit qu'un) tiennent en mémoire.
+     *
+     * @param cityCount Le nombre de villes de l'instance.
+     * @param cores     Le nombre de cœurs disponibles.
+     * @param maxHeap   Le tas maximal, en octets.
+     * @return Ces paramètres.
+     */
+    LaunchOptions resolve(int cityCount, int cores, long maxHeap) {
+        if (gaThreads == AUTO) {
+            gaThreads = Math.max(1, cores / 4);
+        }
+        int wanted = models == AUTO ? Math.max(1, cores - gaThreads) : models;
+        long budget = (long) (maxHeap * MODEL_HEAP_SHARE);
+        if (candidates == AUTO) {
+            long fullTables = PPC.estimateModelBytes(cityCount, modelOptions(0));
+            candidates = fullTables * Math.min(wanted, 2) <= budget ? 0 : AUTO_CANDIDATES;
+        }
+        modelBytes = PPC.estimateModelBytes(cityCount, modelOptions(candidates));
+        if (models == AUTO) {
+            models = (int) Math.max(1, Math.min(wanted, budget / modelBytes));
+        }
+        return this;
+    }
+
+    private ModelOptions modelOptions(int candidateCount) {
+        return ModelOptions.defaults().withCandidates(candidateCount)
+                .withHeldKarp(heldKarpIterations, heldKarpIterations / 10);
+    }
+
+    /**
+     * @return Le résumé des paramètres choisis, pour l'affichage au lancement.
+     */
+    public String describe(int cityCount) {
+        return String.format(Locale.ROOT, "%s : %d villes, %d modèles PPC (%s, ~%.1f Mo chacun), %d îles sur %d threads AG,"
+                        + " %d cœurs, tas max %d Mo", file, cityCount, models,
+                candidates > 0 ? candidates + " candidats" : "tables complètes", modelBytes / 1e6, islands, gaThreads,
+                Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / 1_000_000);
+    }
+
+    /**
+     * @return Le mode d'emploi de la ligne de commande.
+     */
+    public static String usage() {
+        return USAGE;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public int getModels() {
+        return models;
+    }
+
+    public int getIslands() {
+        return islands;
+    }
+
+    public int getGaThreads() {
+        return gaThreads;
+    }
+
+    public int getMigrationInterval() {
+        return migrationInterval;
+    }
+
+    public boolean isVectorEvaluation() {
+        return vectorEvaluation;
+    }
+
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public int getHeldKarpIterations() {
+        return heldKarpIterations;
+    }
+
+    public int getLnsFailLimit() {
+        return lnsFailLimit;
+    }
+
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    public double getTargetGap() {
+        return targetGap;
+    }
+
+    /**
+     * @return Le fichier d'export des mesures, ou null.
+     */
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+    public long getMetricsIntervalMillis() {
+        return metricsIntervalMillis;
+    }
+
+    /**
+     * @return Le fichier du point de contrôle, ou null.
+     */
+    public String getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public long getCheckpointIntervalMillis() {
+        return checkpointIntervalMillis;
+    }
+
+    /**
+     * @return true si --help est demandé : le mode d'emploi est affiché, sans résolution.
+     */
+    public boolean isHelp() {
+        return help;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public int getClusterSize() {
+        return clusterSize;
+    }
+
+    public long getClusterTimeMillis() {
+        return clusterTimeMillis;
+    }
+
+    /**
+     * @return Le répertoire de la file du mode service ({@link SolverService}), ou null.
+     */
+    public String getServeDirectory() {
+        return serveDirectory;
+    }
+
+    /**
+     * @return Le nombre de demandes résolues en même temps en mode service, ou {@link #AUTO}.
+     */
+    public int getJobs() {
+        return jobs;
+    }
+
+    public long getMaxJobMillis() {
+        return maxJobMillis;
+    }
+
+    /**
+     * @return Le port du coordinateur d'une résolution répartie, ou -1.
+     */
+    public int getCoordinatorPort() {
+        return coordinatorPort;
+    }
+
+    /**
+     * @return L'hôte du coordinateur auquel se relie ce processus de calcul, ou null.
+     */
+    public String getWorkerHost() {
+        return workerHost;
+    }
+
+    public int getWorkerPort() {
+        return workerPort;
+    }
+}
@@ -0,0 +1,356 @@
+package org.example.threadpackage;
+
+/**
+ * Recherche locale 2-opt / Or-opt sur listes de candidats, utilisée comme étape mémétique de l'AG.
+ * <p>
+ * Les mouvements ne sont cherchés que vers les k plus proches voisins de chaque ville, et des
+ * bits « don't look » (une file des villes encore actives) évitent de réexaminer les villes dont
+ * le voisinage n'a pas changé. Les arcs interdits (Integer.MAX_VALUE dans les distances courantes) ne
+ * sont jamais créés. Chaque appel est limité par un nombre de mouvements et une durée.
+ */
+public final class LocalSearch {
+
+    private static final int MAX_SEGMENT = 3;
+
+    private final DistanceProvider distances;
+    private final int[][] neighbors;
+    private final int cityCount;
+    private final int maxMoves;
+    private final long timeBudgetNanos;
+    private boolean exact;
+
+    private final int[] position;
+    private final int[] queue;
+    private final boolean[] queued;
+    private final int[] scratch;
+    private int head = 0;
+    private int size = 0;
+    private long appliedMoves = 0;
+
+    /**
+     * @param distances       Les distances courantes (Integer.MAX_VALUE pour un arc interdit).
+     * @param neighbors       Listes de candidats, triées par distance croissante.
+     * @param maxMoves        Nombre maximal de mouvements améliorants par individu.
+     * @param timeBudgetNanos Durée maximale consacrée à un individu.
+     */
+    public LocalSearch(DistanceProvider distances, int[][] neighbors, int maxMoves, long timeBudgetNanos) {
+        this.distances = distances;
+        this.neighbors = neighbors;
+        this.cityCount = distances.size();
+        this.maxMoves = maxMoves;
+        this.timeBudgetNanos = timeBudgetNanos;
+        this.position = new int[cityCount];
+        this.queue = new int[cityCount];
+        this.queued = new boolean[cityCount];
+        this.scratch = new int[cityCount];
+        onDistancesChanged();
+    }
+
+    /**
+     * À appeler après une modification des distances (nouveau domaine des arcs). Dès qu'un arc est
+     * interdit, le sens de parcours compte : les segments inversés par 2-opt sont alors vérifiés
+     * et leur coût recalculé.
+     */
+    public void onDistancesChanged() {
+        exact = distances.hasForbiddenEdges() || !distances.isSymmetric();
+    }
+
+    /**
+     * Améliore une tournée en place.
+     *
+     * @param tour   Ordre de visite des villes.
+     * @param length Longueur actuelle de la tournée.
+     * @return La nouvelle longueur de la tournée.
+     */
+    public long improve(int[] tour, long length) {
+        if (length == PermutationEngine.INFEASIBLE || cityCount < 5) {
+            return length;
+        }
+        for (int k = 0; k < cityCount; k++) {
+            position[tour[k]] = k;
+            push(tour[k]);
+        }
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        int moves = 0;
+        int steps = 0;
+        while (size > 0 && moves < maxMoves) {
+            if ((++steps & 15) == 0 && System.nanoTime() > deadline) {
+                break;
+            }
+            int a = poll();
+            long gain = twoOpt(tour, a);
+            if (gain <= 0) {
+                gain = orOpt(tour, a);
+            }
+            if (gain > 0) {
+                length -= gain;
+                moves++;
+                push(a);
+            }
+        }
+        while (size > 0) {
+            poll();
+        }
+        appliedMoves += moves;
+        return length;
+    }
+
+    /**
+     * @return Le nombre total de mouvements améliorants appliqués.
+     */
+    public long getAppliedMoves() {
+        return appliedMoves;
+    }
+
+    private long twoOpt(int[] tour, int a) {
+        // a -> succ(a) : suppression de (a, b) et (c, succ(c)), ajout de (a, c) et (b, succ(c))
+        int b = next(tour, a);
+        int dab = distances.distance(a, b);
+        for (int c : neighbors[a]) {
+            int dac = distances.distance(a, c);
+            if (dac == Integer.MAX_VALUE) {
+                continue;
+            }
+            if (dac >= dab) {
+                break;
+            }
+            long gain = tryTwoOpt(tour, a, b, c, next(tour, c));
+            if (gain > 0) {
+                return gain;
+            }
+        }
+        // pred(a) -> a : suppression de (b, a) et (pred(c), c), ajout de (b, pred(c)) et (a, c)
+        b = previous(tour, a);
+        int dba = distances.distance(b, a);
+        for (int c : neighbors[a]) {
+            int dac = distances.distance(a, c);
+            if (dac == Integer.MAX_VALUE) {
+                continue;
+            }
+            if (dac >= dba) {
+                break;
+            }
+            long gain = tryTwoOpt(tour, b, a, previous(tour, c), c);
+            if (gain > 0) {
+                return gain;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Évalue puis applique le 2-opt remplaçant (x1, x2) et (y1, y2) par (x1, y1) et (x2, y2),
+     * c'est-à-dire l'inversion du chemin x2 ... y1.
+     */
+    private long tryTwoOpt(int[] tour, int x1, int x2, int y1, int y2) {
+        if (x1 == y1 || x2 == y1 || x1 == y2) {
+            return 0;
+        }
+        int dx1y1 = distances.distance(x1, y1);
+        int dx2y2 = distances.distance(x2, y2);
+        if (dx1y1 == Integer.MAX_VALUE || dx2y2 == Integer.MAX_VALUE) {
+            return 0;
+        }
+        long gain = (long) distances.distance(x1, x2) + distances.distance(y1, y2) - dx1y1 - dx2y2;
+        if (gain <= 0) {
+            return 0;
+        }
+        int from = position[x2];
+        int to = position[y1];
+        if (exact) {
+            long interior = reversalCost(tour, from, to);
+            if (interior == Long.MAX_VALUE) {
+                return 0;
+            }
+            gain -= interior;
+            if (gain <= 0) {
+                return 0;
+            }
+            reverse(tour, from, to);
+        } else if (2 * ((to - from + cityCount) % cityCount + 1) <= cityCount) {
+            reverse(tour, from, to);
+        } else {
+            // distances symétriques : inverser le complément donne la même tournée
+            reverse(tour, position[y2], position[x1]);
+        }
+        push(x1);
+        push(x2);
+        push(y1);
+        push(y2);
+        return gain;
+    }
+
+    /**
+     * Variation de coût due au changement de sens du chemin allant de la position from à to,
+     * ou Long.MAX_VALUE si l'un des arcs inversés est interdit.
+     */
+    private long reversalCost(int[] tour, int from, int to) {
+        long delta = 0;
+        int k = from;
+        while (k != to) {
+            int k1 = k + 1 == cityCount ? 0 : k + 1;
+            int x = tour[k];
+            int y = tour[k1];
+            int reversed = distances.distance(y, x);
+            if (reversed == Integer.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+            delta += reversed - distances.distance(x, y);
+            k = k1;
+        }
+        return delta;
+    }
+
+    private long orOpt(int[] tour, int s1) {
+        int sL = s1;
+        for (int L = 1; L <= MAX_SEGMENT && L < cityCount - 3; L++) {
+            if (L > 1) {
+                sL = next(tour, sL);
+            }
+            int p = previous(tour, s1);
+            int nx = next(tour, sL);
+            int dpnx = distances.distance(p, nx);
+            if (dpnx == Integer.MAX_VALUE) {
+                continue;
+            }
+            long removeGain = (long) distances.distance(p, s1) + distances.distance(sL, nx) - dpnx;
+            if (removeGain <= 0) {
+                continue;
+            }
+            // insertion entre c et succ(c), c parmi les voisins de s1
+            for (int c : neighbors[s1]) {
+                int dcs1 = distances.distance(c, s1);
+                if (dcs1 == Integer.MAX_VALUE) {
+                    continue;
+                }
+                if (dcs1 >= removeGain) {
+                    break;
+                }
+                int e = next(tour, c);
+                long gain = tryInsert(tour, s1, sL, L, p, nx, c, e, removeGain);
+                if (gain > 0) {
+                    return gain;
+                }
+            }
+            // insertion entre pred(c) et c, c parmi les voisins de sL
+            for (int c : neighbors[sL]) {
+                int dsLc = distances.distance(sL, c);
+                if (dsLc == Integer.MAX_VALUE) {
+                    continue;
+                }
+                if (dsLc >= removeGain) {
+                    break;
+                }
+                long gain = tryInsert(tour, s1, sL, L, p, nx, previous(tour, c), c, removeGain);
+                if (gain > 0) {
+                    return gain;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Évalue puis applique le déplacement du segment s1 ... sL (de longueur L) entre c et e.
+     */
+    private long tryInsert(int[] tour, int s1, int sL, int L, int p, int nx, int c, int e, long removeGain) {
+        if (c == p || inSegment(c, s1, L) || inSegment(e, s1, L)) {
+            return 0;
+        }
+        int dcs1 = distances.distance(c, s1);
+        int dsLe = distances.distance(sL, e);
+        if (dcs1 == Integer.MAX_VALUE || dsLe == Integer.MAX_VALUE) {
+            return 0;
+        }
+        long gain = removeGain - ((long) dcs1 + dsLe - distances.distance(c, e));
+        if (gain <= 0) {
+            return 0;
+        }
+        moveSegment(tour, s1, L, c);
+        push(p);
+        push(nx);
+        push(c);
+        push(e);
+        push(s1);
+        push(sL);
+        return gain;
+    }
+
+    private boolean inSegment(int city, int s1, int L) {
+        int offset = position[city] - position[s1];
+        if (offset < 0) {
+            offset += cityCount;
+        }
+        return offset < L;
+    }
+
+    /**
+     * Reconstruit la tournée en plaçant le segment commençant par s1 juste après la ville c.
+     */
+    private void moveSegment(int[] tour, int s1, int L, int c) {
+        int start = position[s1];
+        int k = start + L >= cityCount ? start + L - cityCount : start + L;
+        int n = 0;
+        for (int r = 0; r < cityCount - L; r++) {
+            int city = tour[k];
+            scratch[n++] = city;
+            if (city == c) {
+                for (int s = 0; s < L; s++) {
+                    int idx = start + s >= cityCount ? start + s - cityCount : start + s;
+                    scratch[n++] = tour[idx];
+                }
+            }
+            k = k + 1 == cityCount ? 0 : k + 1;
+        }
+        System.arraycopy(scratch, 0, tour, 0, cityCount);
+        for (int i = 0; i < cityCount; i++) {
+            position[tour[i]] = i;
+        }
+    }
+
+    /**
+     * Inverse en place le chemin allant de la position from à la position to (circulairement).
+     */
+    private void reverse(int[] tour, int from, int to) {
+        int length = (to - from + cityCount) % cityCount + 1;
+        int i = from;
+        int j = to;
+        for (int s = 0; s < length / 2; s++) {
+            int ci = tour[i];
+            int cj = tour[j];
+            tour[i] = cj;
+            position[cj] = i;
+            tour[j] = ci;
+            position[ci] = j;
+            i = i + 1 == cityCount ? 0 : i + 1;
+            j = j == 0 ? cityCount - 1 : j - 1;
+        }
+    }
+
+    private int next(int[] tour, int city) {
+        int k = position[city] + 1;
+        return tour[k == cityCount ? 0 : k];
+    }
+
+    private int previous(int[] tour, int city) {
+        int k = position[city];
+        return tour[k == 0 ? cityCount - 1 : k - 1];
+    }
+
+    private void push(int city) {
+        if (!queued[city]) {
+            queued[city] = true;
+            int tail = head + size;
+            queue[tail >= cityCount ? tail - cityCount : tail] = city;
+            size++;
+        }
+    }
+
+    private int poll() {
+        int city = queue[head];
+        head = head + 1 == cityCount ? 0 : head + 1;
+        size--;
+        queued[city] = false;
+        return city;
+    }
+}
@@ -1,13 +1,16 @@
 package org.example.threadpackage;
 
-import org.chocosolver.solver.Model;
 import org.chocosolver.solver.ParallelPortfolio;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Main {
@@ -15,56 +18,295 @@ public class Main {
 
 
         SharedSolution sharedSolution = new SharedSolution();
-        ParallelPortfolio portfolio = new ParallelPortfolio();
-        String filePath = "distance_matrix76.txt";
-        int nbModels = 5;
-        int cityCount = 76;
+        // la recherche de chaque modèle est configurée par PPC.configureSearch (LNS par modèle)
+        ParallelPortfolio portfolio = new ParallelPortfolio(false);
+        LaunchOptions launch;
+        try {
+            launch = LaunchOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(LaunchOptions.usage());
+            return;
+        }
+        if (launch.isHelp()) {
+            System.out.println(LaunchOptions.usage());
+            return;
+        }
+        if (launch.getServeDirectory() != null) {
+            serve(launch);
+            return;
+        }
+        DistanceProvider distances = readDistances(launch.getFile());
+        if (distances == null) {
+            return;
+        }
+        int cityCount = distances.size();
+        if (launch.getCoordinatorPort() >= 0) {
+            coordinate(distances, launch);
+            return;
+        }
+        // modèles, threads de l'AG et candidats non imposés : choisis selon les cœurs et le tas
+        launch.resolve(cityCount);
+        System.out.println(launch.describe(cityCount));
+        if (launch.getWorkerHost() != null) {
+            work(distances, launch);
+            return;
+        }
+
+        int nbModels = launch.getModels(); // threads consacrés à la PPC (un par modèle du portefeuille)
+        int nbIslands = launch.getIslands(); // populations de l'AG
+        int gaThreads = launch.getGaThreads(); // threads consacrés à l'AG, partagés par les îles
+        int migrationInterval = launch.getMigrationInterval(); // générations entre deux migrations
+        boolean vectorEvaluation = launch.isVectorEvaluation(); // --vector : API Vector si la JVM est lancée avec --add-modules jdk.incubator.vector
+        int nbCandidates = launch.getCandidates(); // > 0 : domaines succ restreints aux k plus proches voisins (grandes instances)
+        int heldKarpIterations = launch.getHeldKarpIterations(); // 0 : pas de borne 1-arbre / Held-Karp sur la distance totale
+        int lnsFailLimit = launch.getLnsFailLimit(); // 0 : recherche arborescente complète pour tous les modèles
+        String metricsFile = launch.getMetricsFile(); // null : pas d'export des mesures
+        long metricsIntervalMillis = launch.getMetricsIntervalMillis();
+        long timeLimitMillis = launch.getTimeLimitMillis(); // 0 : jusqu'à la preuve d'optimalité
+        double targetGap = launch.getTargetGap(); // écart relatif à la borne Held-Karp de la racine ; < 0 : ignoré
+        String checkpointFile = launch.getCheckpointFile(); // null : pas de point de contrôle
+        long checkpointIntervalMillis = launch.getCheckpointIntervalMillis();
+        boolean resume = launch.isResume(); // reprise depuis le point de contrôle
+        int clusterSize = launch.getClusterSize(); // > 0 : mode décomposition (grandes instances), villes par groupe
+        long clusterTimeMillis = launch.getClusterTimeMillis(); // temps de calcul de chaque groupe en mode décomposition
 
-        int[][] distanceMatrix = readMatrixFromFile(filePath);
         portfolio.getModels().forEach(m -> m.getSolver().reset());
+        if (clusterSize > 0 && cityCount > clusterSize) {
+            solveByDecomposition(distances, clusterSize, clusterTimeMillis, heldKarpIterations, lnsFailLimit);
+            return;
+        }
 
-        int numBlocks = (cityCount * cityCount + 63) / 64;
-        List<CityConnections> connectionsBlocks = new ArrayList<>();
-        for (int i = 0; i < numBlocks; i++) {
-            connectionsBlocks.add(new CityConnections());
+        EdgeDomainStore edgeDomain = new EdgeDomainStore(cityCount);
+        // la tournée reprise sert d'indice et de borne de l'objectif aux modèles construits ensuite
+        Checkpoint checkpoint = resume && checkpointFile != null
+                ? readCheckpoint(Paths.get(checkpointFile), distances, sharedSolution, edgeDomain) : null;
+        boolean completeSearch = buildPortfolio(portfolio, distances, 0, nbModels, nbCandidates, heldKarpIterations,
+                lnsFailLimit, edgeDomain, sharedSolution);
+        IslandModel islands = new IslandModel(distances, nbIslands, gaThreads, IslandModel.Topology.RING,
+                migrationInterval, edgeDomain, sharedSolution);
+        islands.enableLocalSearch(10, 0.1, 1000, 1_000_000L);
+        if (vectorEvaluation) {
+            islands.enableVectorEvaluation();
         }
-        for (int s = 0; s < nbModels; s++) {
-            portfolio.addModel(PPC.SolveTSP(cityCount, distanceMatrix, connectionsBlocks, sharedSolution));
+        if (checkpoint != null) {
+            islands.seedPopulations(checkpoint.getPopulations());
+        }
+        CheckpointWriter checkpointWriter = null;
+        if (checkpointFile != null) {
+            checkpointWriter = new CheckpointWriter(Paths.get(checkpointFile), distances, checkpointIntervalMillis,
+                    sharedSolution, edgeDomain, islands);
+            checkpointWriter.start();
+        }
+        MetricsReporter reporter = null;
+        if (metricsFile != null) {
+            try {
+                reporter = new MetricsReporter(sharedSolution, portfolio.getModels(), Paths.get(metricsFile),
+                        metricsIntervalMillis);
+                reporter.start();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
-        portfolio.stealNogoodsOnRestarts();
-        int nbSols = 0;
-
-        Thread agThread = new Thread(() -> {
 
-            AG agSolver = new AG(distanceMatrix, connectionsBlocks);
-            while (!sharedSolution.isStopped()) {
-                List<CityConnections> currentConnectionsBlocks = sharedSolution.getConnectionsBlocks();
-                if (currentConnectionsBlocks != null) {
 
-                    agSolver.initializeWithConnectionsBlocks(currentConnectionsBlocks);
-                    agSolver.runAlgorithm(10000, sharedSolution);
-                }
+        SolverCoordinator coordinator = new SolverCoordinator(portfolio, islands, sharedSolution)
+                .withTimeLimit(timeLimitMillis)
+                .withTargetGap(targetGap)
+                .withCompleteSearch(completeSearch);
+        SolverCoordinator.StopReason reason = coordinator.run();
+        if (checkpointWriter != null) {
+            checkpointWriter.close();
+        }
+        if (reporter != null) {
+            reporter.close();
+        }
+        System.out.printf("Arrêt : %s après %d ms (écart %.4f, borne %d)%n", reason, coordinator.getElapsedMillis(),
+                coordinator.getGap(), sharedSolution.getLowerBound());
+        System.out.printf("AG : %d îles, %.0f générations/s au total, %d mises en attente%n", nbIslands,
+                islands.getGenerationsPerSecond(), islands.getParkCount());
+        System.out.printf("Export des domaines : %d ms sur %d publications (%d lignes)%n",
+                edgeDomain.getExportNanos() / 1_000_000, edgeDomain.getExportCount(), edgeDomain.getExportedRows());
 
+    }
 
+    /**
+     * Ajoute au portefeuille ses modèles PPC, prêts à résoudre : le modèle de rang 0 est complet
+     * (preuve d'optimalité), les suivants alternent les voisinages LNS, et chacun a sa stratégie de
+     * branchement pour que le portefeuille explore des parties différentes de l'arbre. Avec des
+     * listes de candidats, aucun modèle n'est complet : la recherche est restreinte aux arcs
+     * candidats, et son épuisement ne prouve rien.
+     *
+     * @param firstRank Rang du premier modèle : les processus d'une résolution répartie
+     *                  ({@link DistributedWorker}) se partagent une seule suite de rangs.
+     * @return true si l'un des modèles est complet, c'est-à-dire si la fin de la recherche du
+     * portefeuille prouve l'optimalité ({@link SolverCoordinator#withCompleteSearch}).
+     */
+    static boolean buildPortfolio(ParallelPortfolio portfolio, DistanceProvider distances, int firstRank, int nbModels,
+                               int nbCandidates, int heldKarpIterations, int lnsFailLimit,
+                               EdgeDomainStore edgeDomain, SharedSolution sharedSolution)
+            throws FileNotFoundException {
+        TourNeighborhood.Policy[] lnsPolicies = TourNeighborhood.Policy.values();
+        SuccessorSearch.Heuristic[] searches = SuccessorSearch.Heuristic.values();
+        boolean complete = false;
+        for (int s = firstRank; s < firstRank + nbModels; s++) {
+            ModelOptions options = ModelOptions.defaults().withCandidates(nbCandidates)
+                    .withHeldKarp(heldKarpIterations, heldKarpIterations / 10)
+                    .withSearch(searches[s % searches.length]);
+            if (lnsFailLimit > 0 && s > 0) {
+                options.withLns(lnsPolicies[(s - 1) % lnsPolicies.length], lnsFailLimit);
             }
+            // un modèle LNS ou restreint aux candidats n'est pas complet : la fin de sa recherche ne prouve rien
+            boolean reliable = !options.isLns() && nbCandidates == 0;
+            complete |= reliable;
+            portfolio.addModel(PPC.SolveTSP(distances.size(), distances, edgeDomain, sharedSolution, options),
+                    reliable);
+        }
+        portfolio.prepare();
+        for (int s = 0; s < nbModels; s++) {
+            PPC.configureSearch(portfolio.getModels().get(s), firstRank + s, sharedSolution);
+        }
+        return complete;
+    }
 
-        });
+    /**
+     * Mode service : résout les demandes déposées dans le répertoire de la file jusqu'à l'arrêt
+     * de la JVM. Un quart des cœurs (au moins un) va au pool de l'AG, le reste à la PPC, et par
+     * défaut une demande est résolue pour deux threads de la PPC.
+     */
+    private static void serve(LaunchOptions launch) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int gaThreads = launch.getGaThreads() == LaunchOptions.AUTO ? Math.max(1, cores / 4) : launch.getGaThreads();
+        int cpThreads = Math.max(1, cores - gaThreads);
+        int jobs = launch.getJobs() == LaunchOptions.AUTO ? Math.max(1, cpThreads / 2) : launch.getJobs();
+        SolverService service;
+        try {
+            service = new SolverService(Paths.get(launch.getServeDirectory()), jobs, cpThreads, gaThreads,
+                    launch.getMaxJobMillis());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(service::close, "service-shutdown"));
+        System.out.printf("Service : file %s, %d demandes en parallèle, %d threads PPC, %d threads AG%n",
+                launch.getServeDirectory(), jobs, cpThreads, gaThreads);
+        service.run();
+    }
 
+    /**
+     * Coordinateur d'une résolution répartie : attend les processus de calcul, diffuse leurs
+     * résultats et les arrête à la fin du budget (--time, --gap).
+     */
+    private static void coordinate(DistanceProvider distances, LaunchOptions launch) throws InterruptedException {
+        DistributedCoordinator coordinator;
+        try {
+            coordinator = new DistributedCoordinator(distances, launch.getCoordinatorPort())
+                    .withTimeLimit(launch.getTimeLimitMillis())
+                    .withTargetGap(launch.getTargetGap());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        System.out.printf("Coordinateur : %s, %d villes, port %d%n", launch.getFile(), distances.size(),
+                coordinator.getPort());
+        SolverCoordinator.StopReason reason = coordinator.run();
+        SharedSolution.Tour best = coordinator.getBestTour();
+        System.out.printf("Arrêt : %s après %d ms (meilleure %s, écart %.4f, borne %d), %d processus dont %d perdus%n",
+                reason, coordinator.getElapsedMillis(), best == null ? "aucune" : String.valueOf(best.getLength()),
+                coordinator.getGap(), coordinator.getLowerBound(), coordinator.getJoinedWorkers(),
+                coordinator.getLostWorkers());
+    }
 
-        agThread.start();
+    /**
+     * Processus de calcul d'une résolution répartie, jusqu'à l'arrêt demandé par le coordinateur.
+     */
+    private static void work(DistanceProvider distances, LaunchOptions launch) throws InterruptedException {
+        DistributedWorker worker = new DistributedWorker(distances, launch, launch.getWorkerHost(),
+                launch.getWorkerPort());
+        try {
+            SolverCoordinator.StopReason reason = worker.run();
+            System.out.printf("Processus %d arrêté : %s%n", worker.getId(), reason);
+        } catch (IOException e) {
+            System.out.println("Coordinateur injoignable : " + e.getMessage());
+        }
+    }
 
+    /**
+     * Résout une grande instance par groupes de villes voisines (voir {@link Decomposition}) et
+     * affiche la tournée obtenue.
+     */
+    private static void solveByDecomposition(DistanceProvider distances, int clusterSize, long clusterTimeMillis,
+                                             int heldKarpIterations, int lnsFailLimit) throws InterruptedException {
+        Decomposition decomposition = new Decomposition(distances)
+                .withClusterSize(clusterSize)
+                .withClusterTimeLimit(clusterTimeMillis)
+                .withHeldKarp(heldKarpIterations)
+                .withLns(lnsFailLimit);
+        int[] tour = decomposition.solve();
+        System.out.printf("Décomposition : %d groupes, tournée raccordée %d, après recherche locale %d (%d ms)%n",
+                decomposition.getClusterCount(), decomposition.getStitchedLength(), decomposition.getLength(),
+                decomposition.getElapsedMillis());
+        System.out.println("Tournée : " + Arrays.toString(tour));
+    }
 
-        while (portfolio.solve()) {
-            Model finder = portfolio.getBestModel();
-            System.out.println(finder.getObjective());
-            sharedSolution.setBestDistance(finder.getObjective().asIntVar().getValue());
+    /**
+     * Lit un point de contrôle et réinstalle son état (voir {@link Checkpoint#restore}).
+     *
+     * @return Le point de contrôle, ou null s'il est absent ou inutilisable (démarrage à froid).
+     */
+    private static Checkpoint readCheckpoint(Path file, DistanceProvider distances, SharedSolution sharedSolution,
+                                             EdgeDomainStore edgeDomain) {
+        if (!Files.exists(file)) {
+            System.out.println("Aucun point de contrôle " + file + " : démarrage à froid");
+            return null;
         }
-        agThread.join();
-        sharedSolution.stopExecution();
+        try {
+            Checkpoint checkpoint = Checkpoint.read(file);
+            checkpoint.restore(distances, sharedSolution, edgeDomain);
+            System.out.printf("Reprise depuis %s : meilleure tournée %d, borne %d%n", file,
+                    checkpoint.getBestLength(), checkpoint.getLowerBound());
+            return checkpoint;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Point de contrôle ignoré : " + e.getMessage());
+            return null;
+        }
+    }
 
+    /**
+     * Lit les distances d'une instance sans construire de matrice {@code int[n][n]} lorsque ce n'est
+     * pas nécessaire : un fichier binaire est lu en place, un fichier de coordonnées donne des
+     * distances calculées à la demande, une matrice texte symétrique est compactée en triangle.
+     *
+     * @param filePath Chemin du fichier (matrice texte, matrice binaire ou coordonnées).
+     * @return Les distances entre les villes, ou null si la lecture échoue.
+     */
+    public static DistanceProvider readDistances(String filePath) {
+        try {
+            Path path = Paths.get(filePath);
+            if (filePath.endsWith(BinaryMatrix.EXTENSION)) {
+                return BinaryMatrix.open(path);
+            }
+            if (MatrixConverter.isCoordinateFile(path)) {
+                return EuclideanDistances.read(path);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        int[][] matrix = readMatrixFromFile(filePath);
+        return matrix == null ? null : DistanceProvider.of(matrix);
     }
 
     public static int[][] readMatrixFromFile(String filePath) {
+        // matrice binaire (MatrixConverter) : projection mémoire, sans analyse du texte
+        if (filePath.endsWith(BinaryMatrix.EXTENSION)) {
+            try {
+                return BinaryMatrix.open(Paths.get(filePath)).toMatrix();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
         List<int[]> matrixList = new ArrayList<>();
 
         try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
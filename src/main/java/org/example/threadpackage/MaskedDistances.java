@@ -0,0 +1,80 @@
+package org.example.threadpackage;
+
+/**
+ * Vue des distances restreinte au domaine des arcs publié par la PPC : un arc interdit par
+ * l'instantané courant vaut Integer.MAX_VALUE, les autres gardent la distance du fournisseur
+ * d'origine. Remplace la copie {@code int[n][n]} modifiée à chaque nouveau domaine : changer de
+ * domaine revient à changer d'instantané.
+ * <p>
+ * Utilisée par un seul thread (celui de l'AG).
+ */
+public final class MaskedDistances implements DistanceProvider {
+
+    private final DistanceProvider distances;
+    private final boolean symmetric;
+    private EdgeDomainStore.Snapshot mask;
+    private boolean forbidden;
+
+    /**
+     * @param distances Les distances d'origine (aucun arc interdit tant qu'aucun masque n'est appliqué).
+     */
+    public MaskedDistances(DistanceProvider distances) {
+        this.distances = distances;
+        this.symmetric = distances.isSymmetric();
+    }
+
+    /**
+     * Applique un nouveau domaine des arcs.
+     *
+     * @param mask Instantané du domaine des arcs, ou null pour autoriser tous les arcs.
+     */
+    public void setMask(EdgeDomainStore.Snapshot mask) {
+        this.mask = mask;
+        this.forbidden = mask != null && mask.hasForbiddenEdges();
+    }
+
+    /**
+     * @return L'instantané du domaine appliqué, ou null.
+     */
+    public EdgeDomainStore.Snapshot getMask() {
+        return mask;
+    }
+
+    /**
+     * @return Les distances d'origine, sans masque.
+     */
+    public DistanceProvider getDistances() {
+        return distances;
+    }
+
+    @Override
+    public int size() {
+        return distances.size();
+    }
+
+    @Override
+    public int distance(int from, int to) {
+        if (forbidden && !mask.isAllowed(from, to)) {
+            return Integer.MAX_VALUE;
+        }
+        return distances.distance(from, to);
+    }
+
+    /**
+     * Plus proches voisins selon les distances d'origine, sans tenir compte du masque.
+     */
+    @Override
+    public int[] nearest(int city, int k) {
+        return distances.nearest(city, k);
+    }
+
+    @Override
+    public boolean isSymmetric() {
+        return symmetric && !forbidden;
+    }
+
+    @Override
+    public boolean hasForbiddenEdges() {
+        return forbidden;
+    }
+}
@@ -0,0 +1,264 @@
+package org.example.threadpackage;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Convertit une matrice texte (format écrit par {@code DistanceMatrix}) ou un fichier de
+ * coordonnées (lignes « numéro x y », comme coordonnes.txt) en matrice binaire {@link BinaryMatrix}.
+ * <p>
+ * La conversion est faite en flux : le texte est lu octet par octet sans expression régulière ni
+ * liste de lignes, et les distances sont écrites directement dans la projection du fichier de
+ * sortie. Une matrice symétrique (diagonale nulle) n'est stockée que par son triangle supérieur.
+ * <p>
+ * Utilisation : {@code MatrixConverter <entrée> <sortie.bin>}
+ */
+public final class MatrixConverter {
+
+    private MatrixConverter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Utilisation : MatrixConverter <matrice.txt | coordonnees.txt> <sortie.bin>");
+            return;
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        long start = System.nanoTime();
+        int n = isCoordinateFile(input) ? convertCoordinates(input, output) : convertTextMatrix(input, output);
+        System.out.printf("%d villes écrites dans %s (%d octets) en %d ms%n",
+                n, output, Files.size(output), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Convertit une matrice texte en matrice binaire.
+     *
+     * @return Le nombre de villes.
+     * @throws IOException Si la lecture ou l'écriture échoue, ou si la matrice n'est pas carrée.
+     */
+    public static int convertTextMatrix(Path input, Path output) throws IOException {
+        // première passe : dimension et plage des valeurs
+        int[] bounds = {Integer.MAX_VALUE, Integer.MIN_VALUE};
+        int n = -1;
+        int rows = 0;
+        try (RowScanner scanner = new RowScanner(input)) {
+            int count;
+            while ((count = scanner.nextRow((j, value) -> {
+                bounds[0] = Math.min(bounds[0], value);
+                bounds[1] = Math.max(bounds[1], value);
+            })) >= 0) {
+                if (count == 0) {
+                    continue;
+                }
+                if (n < 0) {
+                    n = count;
+                } else if (count != n) {
+                    throw new IOException("Ligne " + rows + " de " + count + " valeurs au lieu de " + n);
+                }
+                rows++;
+            }
+        }
+        if (n < 0 || rows != n) {
+            throw new IOException("Matrice non carrée : " + rows + " lignes pour " + Math.max(n, 0) + " colonnes");
+        }
+        int width = bounds[0] >= 0 && bounds[1] <= 0xFFFF ? 2 : 4;
+
+        // deuxième passe : triangle supérieur, en vérifiant la symétrie avec les valeurs déjà écrites
+        if (!writeTextMatrix(input, output, n, width, true)) {
+            writeTextMatrix(input, output, n, width, false);
+        }
+        return n;
+    }
+
+    /**
+     * @return false si la matrice s'est révélée non symétrique alors qu'elle était écrite en triangle.
+     */
+    private static boolean writeTextMatrix(Path input, Path output, int n, int width, boolean symmetric)
+            throws IOException {
+        MappedByteBuffer buffer = BinaryMatrix.create(output, n, width, symmetric);
+        boolean[] consistent = {true};
+        try (RowScanner scanner = new RowScanner(input)) {
+            int[] row = {0};
+            int count;
+            while (consistent[0] && (count = scanner.nextRow((j, value) -> {
+                int i = row[0];
+                if (!symmetric) {
+                    BinaryMatrix.put(buffer, width, BinaryMatrix.index(n, i, j, false), value);
+                } else if (j > i) {
+                    BinaryMatrix.put(buffer, width, BinaryMatrix.index(n, i, j, true), value);
+                } else if (j == i) {
+                    consistent[0] &= value == 0;
+                } else {
+                    consistent[0] &= BinaryMatrix.get(buffer, width, BinaryMatrix.index(n, j, i, true)) == value;
+                }
+            })) >= 0) {
+                if (count > 0) {
+                    row[0]++;
+                }
+            }
+        }
+        buffer.force();
+        return consistent[0];
+    }
+
+    /**
+     * Convertit un fichier de coordonnées en matrice binaire symétrique, avec les distances
+     * euclidiennes arrondies de {@code DistanceMatrix}.
+     *
+     * @return Le nombre de villes.
+     * @throws IOException Si la lecture ou l'écriture échoue.
+     */
+    public static int convertCoordinates(Path input, Path output) throws IOException {
+        int[][] cities = readCoordinates(input);
+        int n = cities.length;
+        long minX = Long.MAX_VALUE, maxX = Long.MIN_VALUE, minY = Long.MAX_VALUE, maxY = Long.MIN_VALUE;
+        for (int[] city : cities) {
+            minX = Math.min(minX, city[0]);
+            maxX = Math.max(maxX, city[0]);
+            minY = Math.min(minY, city[1]);
+            maxY = Math.max(maxY, city[1]);
+        }
+        // la diagonale du rectangle englobant borne toutes les distances
+        double diagonal = n == 0 ? 0 : Math.hypot(maxX - minX, maxY - minY);
+        int width = Math.round(diagonal) <= 0xFFFF ? 2 : 4;
+        MappedByteBuffer buffer = BinaryMatrix.create(output, n, width, true);
+        long index = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                BinaryMatrix.put(buffer, width, index++, DistanceMatrix.calculateDistance(cities[i], cities[j]));
+            }
+        }
+        buffer.force();
+        return n;
+    }
+
+    /**
+     * Lit les lignes « numéro x y » d'un fichier de coordonnées.
+     */
+    static int[][] readCoordinates(Path input) throws IOException {
+        int[][] cities = new int[16][];
+        int[] values = new int[3];
+        int n = 0;
+        try (RowScanner scanner = new RowScanner(input)) {
+            int count;
+            while ((count = scanner.nextRow((j, value) -> {
+                if (j < 3) {
+                    values[j] = value;
+                }
+            })) >= 0) {
+                if (count == 3) {
+                    if (n == cities.length) {
+                        cities = Arrays.copyOf(cities, 2 * n);
+                    }
+                    cities[n++] = new int[]{values[1], values[2]};
+                }
+            }
+        }
+        return Arrays.copyOf(cities, n);
+    }
+
+    /**
+     * @return true si la première ligne contenant un chiffre n'a pas de virgule (fichier de coordonnées).
+     */
+    static boolean isCoordinateFile(Path input) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(input))) {
+            boolean digit = false;
+            boolean comma = false;
+            int b;
+            while ((b = in.read()) >= 0) {
+                if (b == '\n') {
+                    if (digit) {
+                        return !comma;
+                    }
+                    comma = false;
+                } else if (b == ',') {
+                    comma = true;
+                } else if (b >= '0' && b <= '9') {
+                    digit = true;
+                }
+            }
+            return digit && !comma;
+        }
+    }
+
+    /**
+     * Reçoit les valeurs d'une ligne : (rang de la valeur dans la ligne, valeur).
+     */
+    private interface ValueSink {
+        void accept(int column, int value);
+    }
+
+    /**
+     * Lecture en flux des entiers d'un fichier texte, ligne par ligne. Les lignes commençant
+     * par « // » sont ignorées, comme dans {@code Main.readMatrixFromFile}.
+     */
+    private static final class RowScanner implements AutoCloseable {
+        private final InputStream in;
+
+        RowScanner(Path path) throws IOException {
+            this.in = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+        }
+
+        /**
+         * Lit une ligne et transmet ses entiers.
+         *
+         * @return Le nombre d'entiers de la ligne, ou -1 en fin de fichier.
+         */
+        int nextRow(ValueSink sink) throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                return -1;
+            }
+            while (b == ' ' || b == '\t') {
+                b = in.read();
+            }
+            if (b == '/') {
+                while (b >= 0 && b != '\n') {
+                    b = in.read();
+                }
+                return 0;
+            }
+            int count = 0;
+            long value = 0;
+            boolean negative = false;
+            boolean inNumber = false;
+            while (b >= 0 && b != '\n') {
+                if (b >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    inNumber = true;
+                } else {
+                    if (inNumber) {
+                        sink.accept(count++, toInt(negative ? -value : value));
+                    }
+                    negative = b == '-';
+                    value = 0;
+                    inNumber = false;
+                }
+                b = in.read();
+            }
+            if (inNumber) {
+                sink.accept(count++, toInt(negative ? -value : value));
+            }
+            return count;
+        }
+
+        private static int toInt(long value) throws IOException {
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new IOException("Valeur hors des bornes d'un int : " + value);
+            }
+            return (int) value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
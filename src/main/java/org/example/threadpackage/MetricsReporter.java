@@ -0,0 +1,157 @@
+package org.example.threadpackage;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Export périodique des mesures du solveur au format JSON lines, par un thread démon.
+ * <p>
+ * Chaque période produit une ligne {@code "type":"sample"} : nœuds, échecs et redémarrages de
+ * chaque modèle du portefeuille avec leur débit sur la période, générations de l'AG et leur débit,
+ * meilleures longueurs (globale et de l'AG), bornes de l'objectif resserrées par une tournée
+ * partagée, délais d'échange des tournées et âge des domaines des arcs (µs). Chaque amélioration
+ * de la meilleure tournée produit une ligne {@code "type":"improvement"} avec son origine
+ * (profil « anytime »).
+ * <p>
+ * Les compteurs des solveurs sont lus sans synchronisation : une valeur peut avoir une période
+ * de retard, ce qui est sans conséquence pour un suivi.
+ */
+public final class MetricsReporter implements AutoCloseable {
+
+    private final SolverMetrics metrics;
+    private final SharedSolution sharedSolution;
+    private final List<Model> models;
+    private final long intervalNanos;
+    private final PrintWriter out;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final long[] lastNodes;
+    private long lastGenerations;
+    private long lastSample;
+
+    /**
+     * @param sharedSolution L'objet partagé, qui porte les mesures.
+     * @param models         Les modèles du portefeuille.
+     * @param file           Fichier de sortie (remplacé).
+     * @param intervalMillis Période d'export.
+     * @throws IOException Si le fichier ne peut pas être ouvert.
+     */
+    public MetricsReporter(SharedSolution sharedSolution, List<Model> models, Path file, long intervalMillis)
+            throws IOException {
+        this.metrics = sharedSolution.getMetrics();
+        metrics.enableImprovements();
+        this.sharedSolution = sharedSolution;
+        this.models = List.copyOf(models);
+        this.intervalNanos = intervalMillis * 1_000_000L;
+        this.out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+        this.lastNodes = new long[models.size()];
+        this.lastSample = metrics.getStartNanos();
+        this.thread = new Thread(this::run, "metrics-reporter");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Démarre l'export périodique.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(intervalNanos);
+            if (running) {
+                report();
+            }
+        }
+    }
+
+    /**
+     * Écrit les améliorations en attente puis un échantillon.
+     */
+    private synchronized void report() {
+        SolverMetrics.Improvement improvement;
+        while ((improvement = metrics.pollImprovement()) != null) {
+            out.printf(Locale.ROOT, "{\"type\":\"improvement\",\"t_ms\":%d,\"length\":%d,\"source\":\"%s\"}%n",
+                    improvement.getElapsedNanos() / 1_000_000, improvement.getLength(), improvement.getSource());
+        }
+
+        long now = System.nanoTime();
+        double seconds = Math.max(now - lastSample, 1) / 1e9;
+        lastSample = now;
+        StringBuilder line = new StringBuilder(256);
+        line.append("{\"type\":\"sample\",\"t_ms\":").append((now - metrics.getStartNanos()) / 1_000_000);
+        line.append(",\"models\":[");
+        for (int m = 0; m < models.size(); m++) {
+            Solver solver = models.get(m).getSolver();
+            long nodes = solver.getNodeCount();
+            if (m > 0) {
+                line.append(',');
+            }
+            line.append("{\"id\":").append(m)
+                    .append(",\"nodes\":").append(nodes)
+                    .append(",\"nodes_per_s\":").append(Math.round((nodes - lastNodes[m]) / seconds))
+                    .append(",\"fails\":").append(solver.getFailCount())
+                    .append(",\"restarts\":").append(solver.getRestartCount())
+                    .append('}');
+            lastNodes[m] = nodes;
+        }
+        long generations = metrics.getGaGenerations();
+        line.append("],\"ga\":{\"generations\":").append(generations)
+                .append(",\"generations_per_s\":").append(Math.round((generations - lastGenerations) / seconds))
+                .append(",\"best\":").append(lengthOrNull(metrics.getGaBestLength()))
+                .append('}');
+        lastGenerations = generations;
+        SharedSolution.Tour best = sharedSolution.getBestTour();
+        line.append(",\"best\":").append(best == null ? "null" : String.valueOf(best.getLength()))
+                .append(",\"best_source\":").append(best == null ? "null" : "\"" + best.getSource() + "\"")
+                .append(",\"cutoffs\":").append(metrics.getCutoffs());
+        appendHistogram(line, "tour_cp_to_ga_us", metrics.getTourToGa());
+        appendHistogram(line, "tour_ga_to_cp_us", metrics.getTourToCp());
+        appendHistogram(line, "domain_age_us", metrics.getDomainAge());
+        line.append('}');
+        out.println(line);
+        out.flush();
+    }
+
+    private static String lengthOrNull(long length) {
+        return length == Long.MAX_VALUE || length == PermutationEngine.INFEASIBLE ? "null" : String.valueOf(length);
+    }
+
+    private static void appendHistogram(StringBuilder line, String name, SolverMetrics.LatencyHistogram histogram) {
+        line.append(",\"").append(name).append("\":{\"count\":").append(histogram.getCount())
+                .append(",\"mean\":").append(histogram.getMean() / 1000)
+                .append(",\"p50\":").append(histogram.getQuantile(0.5) / 1000)
+                .append(",\"p99\":").append(histogram.getQuantile(0.99) / 1000)
+                .append(",\"max\":").append(histogram.getMax() / 1000)
+                .append('}');
+    }
+
+    /**
+     * Arrête l'export après un dernier échantillon et ferme le fichier.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            report();
+            out.close();
+        }
+    }
+}
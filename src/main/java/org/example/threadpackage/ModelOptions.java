@@ -0,0 +1,110 @@
+package org.example.threadpackage;
+
+/**
+ * Options de construction d'un modèle PPC ({@link PPC#SolveTSP}).
+ * Chaque modèle du portfolio peut recevoir ses propres options.
+ */
+public final class ModelOptions {
+
+    private int candidateCount = 0;
+    private int heldKarpRootIterations = 0;
+    private int heldKarpIterations = 0;
+    private TourNeighborhood.Policy lnsPolicy = null;
+    private int lnsFailLimit = 0;
+    private SuccessorSearch.Heuristic search = SuccessorSearch.Heuristic.TOUR_HINT;
+
+    private ModelOptions() {
+    }
+
+    /**
+     * @return Les options par défaut : domaines succ complets et tables de distances complètes.
+     */
+    public static ModelOptions defaults() {
+        return new ModelOptions();
+    }
+
+    /**
+     * Restreint le domaine de chaque succ[i] à ses k plus proches voisins (plus les arcs de la
+     * meilleure tournée connue), avec des contraintes element de taille k au lieu des tables
+     * de C-1 couples. Le modèle occupe alors une mémoire en C*k au lieu de C².
+     *
+     * @param k Nombre de voisins candidats par ville (0 pour désactiver).
+     * @return Ces options.
+     */
+    public ModelOptions withCandidates(int k) {
+        this.candidateCount = k;
+        return this;
+    }
+
+    public int getCandidateCount() {
+        return candidateCount;
+    }
+
+    /**
+     * Ajoute le propagateur de borne 1-arbre / Held-Karp ({@link HeldKarpPropagator}) sur totDist.
+     *
+     * @param rootIterations Itérations de sous-gradient à la première propagation (0 pour désactiver).
+     * @param iterations     Itérations de sous-gradient aux propagations suivantes.
+     * @return Ces options.
+     */
+    public ModelOptions withHeldKarp(int rootIterations, int iterations) {
+        this.heldKarpRootIterations = rootIterations;
+        this.heldKarpIterations = iterations;
+        return this;
+    }
+
+    public boolean isHeldKarp() {
+        return heldKarpRootIterations > 0;
+    }
+
+    public int getHeldKarpRootIterations() {
+        return heldKarpRootIterations;
+    }
+
+    public int getHeldKarpIterations() {
+        return heldKarpIterations;
+    }
+
+    /**
+     * Remplace la recherche arborescente complète par une recherche à grand voisinage (LNS) :
+     * des segments de la tournée courante sont relâchés ({@link TourNeighborhood}) puis
+     * réoptimisés sous une limite d'échecs.
+     *
+     * @param policy    Politique de choix des villes relâchées (null pour désactiver).
+     * @param failLimit Nombre d'échecs autorisés par voisinage.
+     * @return Ces options.
+     */
+    public ModelOptions withLns(TourNeighborhood.Policy policy, int failLimit) {
+        this.lnsPolicy = policy;
+        this.lnsFailLimit = failLimit;
+        return this;
+    }
+
+    public boolean isLns() {
+        return lnsPolicy != null;
+    }
+
+    public TourNeighborhood.Policy getLnsPolicy() {
+        return lnsPolicy;
+    }
+
+    public int getLnsFailLimit() {
+        return lnsFailLimit;
+    }
+
+    /**
+     * Choisit la stratégie de branchement du modèle ({@link PPC#configureSearch}). Des modèles
+     * aux stratégies différentes explorent des parties différentes de l'espace de recherche.
+     *
+     * @param heuristic La stratégie ({@link SuccessorSearch.Heuristic#TOUR_HINT} par défaut).
+     * @return Ces options.
+     */
+    public ModelOptions withSearch(SuccessorSearch.Heuristic heuristic) {
+        this.search = heuristic;
+        return this;
+    }
+
+    public SuccessorSearch.Heuristic getSearch() {
+        return search;
+    }
+}
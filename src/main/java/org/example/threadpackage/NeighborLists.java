@@ -0,0 +1,26 @@
+package org.example.threadpackage;
+
+/**
+ * Listes des k plus proches voisins de chaque ville (listes de candidats).
+ */
+public final class NeighborLists {
+
+    private NeighborLists() {
+    }
+
+    /**
+     * Calcule, pour chaque ville, ses k plus proches voisins triés par distance croissante.
+     *
+     * @param distances Les distances entre villes (index spatial éventuel : {@link DistanceProvider#nearest}).
+     * @param k         Nombre de voisins par ville (borné par C - 1).
+     * @return neighbors[i] = les k villes les plus proches de i.
+     */
+    public static int[][] compute(DistanceProvider distances, int k) {
+        int C = distances.size();
+        int[][] neighbors = new int[C][];
+        for (int i = 0; i < C; i++) {
+            neighbors[i] = distances.nearest(i, k);
+        }
+        return neighbors;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.threadpackage;
+
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+
+/**
+ * Borne supérieure dynamique d'un modèle PPC : chaque nouvelle meilleure tournée partagée (AG ou
+ * autre modèle) devient la borne de l'objectif du modèle pendant sa recherche.
+ * <p>
+ * La borne est transmise au gestionnaire d'objectif du solveur, comme le fait
+ * {@link org.chocosolver.solver.ParallelPortfolio} entre ses modèles : le solveur l'applique
+ * lui-même (coupe stricte totDist &lt; borne) à sa prochaine propagation ou à son prochain
+ * redémarrage, sur son propre thread. Un modèle LNS ne reçoit la borne qu'après sa première
+ * solution : avant, il n'a pas de tournée autour de laquelle construire ses voisinages, et une
+ * borne trop serrée l'empêcherait d'en trouver une.
+ */
+public final class ObjectiveCutoff implements SharedSolution.Listener, IMonitorSolution {
+
+    private final Solver solver;
+    private final SharedSolution sharedSolution;
+    private volatile boolean active;
+
+    /**
+     * Crée la borne et l'abonne aux tournées partagées et aux solutions du modèle.
+     *
+     * @param solver            Le solveur du modèle, dont l'objectif est déjà défini.
+     * @param sharedSolution    L'objet partagé contenant la meilleure tournée.
+     * @param afterFirstSolution true pour n'appliquer la borne qu'après la première solution du modèle.
+     */
+    public ObjectiveCutoff(Solver solver, SharedSolution sharedSolution, boolean afterFirstSolution) {
+        this.solver = solver;
+        this.sharedSolution = sharedSolution;
+        this.active = !afterFirstSolution;
+        solver.plugMonitor(this);
+        sharedSolution.addListener(this);
+        if (active) {
+            apply(sharedSolution.getBestTour());
+        }
+    }
+
+    @Override
+    public void onTour(SharedSolution.Tour tour) {
+        if (active) {
+            apply(tour);
+        }
+    }
+
+    @Override
+    public void onSolution() {
+        if (!active) {
+            active = true;
+            // la meilleure tournée partagée peut être bien plus courte que cette première solution
+            apply(sharedSolution.getBestTour());
+        }
+    }
+
+    private void apply(SharedSolution.Tour tour) {
+        if (tour != null && tour.getLength() <= Integer.MAX_VALUE
+                && solver.getObjectiveManager().updateBestSolution((int) tour.getLength())) {
+            sharedSolution.getMetrics().recordCutoff();
+        }
+    }
+}
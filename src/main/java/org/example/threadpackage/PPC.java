@@ -2,19 +2,73 @@ package org.example.threadpackage;
 
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
 import org.chocosolver.solver.constraints.extension.Tuples;
-import org.chocosolver.solver.search.loop.monitors.IMonitorClose;
-import org.chocosolver.solver.search.loop.monitors.IMonitorUpBranch;
+import org.chocosolver.solver.search.limits.FailCounter;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+import org.chocosolver.solver.search.restart.AbstractRestart;
+import org.chocosolver.solver.search.strategy.BlackBoxConfigurator;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.search.strategy.SearchParams;
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
 import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
 
 import java.io.FileNotFoundException;
-import java.util.List;
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Classe implémentant un Solver de TSP en utilisant Choco-solver
  */
 public class PPC {
 
+    /**
+     * Délai minimal entre deux exports du domaine des arcs.
+     */
+    static final long EXPORT_INTERVAL_NANOS = 50_000_000L;
+
+    /**
+     * Nombre de modifications de domaine des variables succ déclenchant un export anticipé.
+     */
+    static final int EXPORT_CHANGE_THRESHOLD = 100_000;
+
+    /**
+     * Borne supérieure du domaine des variables dist avec les tables complètes.
+     */
+    static final int DISTANCE_UPPER_BOUND = 100000;
+
+    /**
+     * Nom du hook du modèle contenant les variables succ.
+     */
+    static final String SUCC_HOOK = "succ";
+
+    /**
+     * Nom du hook du modèle contenant ses {@link ModelOptions}.
+     */
+    static final String OPTIONS_HOOK = "options";
+
+    /**
+     * Nom du hook du modèle contenant les distances de l'instance.
+     */
+    static final String DISTANCES_HOOK = "distances";
+
+    /**
+     * Heuristiques de choix de variable des membres du portfolio, dans l'ordre des modèles
+     * (celles qu'applique {@code ParallelPortfolio} lorsqu'il configure lui-même la recherche).
+     */
+    private static final SearchParams.VariableSelection[] WORKER_VARIABLE_SELECTION = {
+            SearchParams.VariableSelection.DOMWDEG,
+            SearchParams.VariableSelection.CHS,
+            SearchParams.VariableSelection.DOMWDEG_CACD,
+            SearchParams.VariableSelection.FRBA,
+            SearchParams.VariableSelection.ACTIVITY,
+            SearchParams.VariableSelection.DOMWDEG_CACD,
+            SearchParams.VariableSelection.DOMWDEG,
+            SearchParams.VariableSelection.FRBA
+    };
 
     /**
      * Résout le problème du voyageur de commerce (TSP)
@@ -22,78 +76,297 @@ public class PPC {
      *
      * @param C                 Le nombre de villes.
      * @param D                 La matrice des distances entre les villes.
-     * @param connectionsBlocks La liste des blocs de connexion représentant les routes possibles entre les villes.
+     * @param edgeDomain        Le stockage partagé dans lequel le modèle publie le domaine des arcs entre les villes.
      * @param sharedSolution    L'objet partagé contenant la meilleure solution trouvée.
      * @return Un modèle Choco-solver représentant le problème TSP.
      * @throws FileNotFoundException Si une erreur d'accès aux fichiers survient (non utilisé dans l'implémentation actuelle).
      */
-    public static Model SolveTSP(int C, int[][] D, List<CityConnections> connectionsBlocks, SharedSolution sharedSolution) throws FileNotFoundException {
+    public static Model SolveTSP(int C, int[][] D, EdgeDomainStore edgeDomain, SharedSolution sharedSolution) throws FileNotFoundException {
+        return SolveTSP(C, D, edgeDomain, sharedSolution, ModelOptions.defaults());
+    }
+
+    /**
+     * Résout le problème du voyageur de commerce (TSP) avec des options de construction.
+     *
+     * @param C              Le nombre de villes.
+     * @param D              La matrice des distances entre les villes.
+     * @param edgeDomain     Le stockage partagé dans lequel le modèle publie le domaine des arcs entre les villes.
+     * @param sharedSolution L'objet partagé contenant la meilleure solution trouvée.
+     * @param options        Les options de construction du modèle.
+     * @return Un modèle Choco-solver représentant le problème TSP.
+     * @throws FileNotFoundException Si une erreur d'accès aux fichiers survient (non utilisé dans l'implémentation actuelle).
+     */
+    public static Model SolveTSP(int C, int[][] D, EdgeDomainStore edgeDomain, SharedSolution sharedSolution,
+                                 ModelOptions options) throws FileNotFoundException {
+        return SolveTSP(C, new ArrayDistances(D), edgeDomain, sharedSolution, options);
+    }
+
+    /**
+     * Résout le problème du voyageur de commerce (TSP) sur un fournisseur de distances quelconque
+     * (matrice pleine ou compactée, fichier binaire projeté en mémoire, coordonnées).
+     *
+     * @param C              Le nombre de villes.
+     * @param D              Les distances entre les villes.
+     * @param edgeDomain     Le stockage partagé dans lequel le modèle publie le domaine des arcs entre les villes.
+     * @param sharedSolution L'objet partagé contenant la meilleure solution trouvée.
+     * @param options        Les options de construction du modèle.
+     * @return Un modèle Choco-solver représentant le problème TSP.
+     * @throws FileNotFoundException Si une erreur d'accès aux fichiers survient (non utilisé dans l'implémentation actuelle).
+     */
+    public static Model SolveTSP(int C, DistanceProvider D, EdgeDomainStore edgeDomain, SharedSolution sharedSolution,
+                                 ModelOptions options) throws FileNotFoundException {
 
 
         Model model = new Model("TSP");
-        // VARIABLES
-        IntVar[] succ = model.intVarArray("succ", C, 0, C - 1);
-        int max = 100000;
-        IntVar[] dist = model.intVarArray("dist", C, 0, max);
-        IntVar totDist = model.intVar("Total distance", 0, max * C);
-
-        // CONSTRAINTS
-        for (int i = 0; i < C; i++) {
-            Tuples tuples = new Tuples(true);
-            for (int j = 0; j < C; j++) {
-                if (j != i) tuples.add(j, D[i][j]);
+        SharedSolution.Tour known = sharedSolution.getBestTour();
+        // tournée de référence : la tournée connue (reprise), ou celle du plus proche voisin en mode candidats
+        int[] reference = null;
+        if (known != null && known.size() == C) {
+            reference = new int[C];
+            for (int i = 0; i < C; i++) {
+                reference[i] = known.successor(i);
+            }
+        } else if (options.getCandidateCount() > 0) {
+            reference = nearestNeighbourSuccessors(D);
+        }
+        IntVar[] succ;
+        IntVar[] dist;
+        IntVar totDist;
+        if (options.getCandidateCount() > 0) {
+            // VARIABLES : domaines restreints aux villes candidates
+            int[][] candidates = candidateLists(D, options.getCandidateCount(), reference);
+            int[][] candidateDistances = new int[C][];
+            succ = new IntVar[C];
+            dist = new IntVar[C];
+            int maxTotal = 0;
+            for (int i = 0; i < C; i++) {
+                int[] cities = candidates[i];
+                int[] distances = new int[cities.length];
+                for (int r = 0; r < cities.length; r++) {
+                    distances[r] = D.distance(i, cities[r]);
+                }
+                candidateDistances[i] = distances;
+                succ[i] = model.intVar("succ[" + i + "]", cities);
+                dist[i] = model.intVar("dist[" + i + "]", distances);
+                maxTotal += dist[i].getUB();
+            }
+            totDist = model.intVar("Total distance", 0, maxTotal);
+
+            // CONSTRAINTS : dist[i] = D[i][succ[i]] par deux element indexés sur la position du candidat
+            for (int i = 0; i < C; i++) {
+                IntVar position = model.intVar("pos[" + i + "]", 0, candidates[i].length - 1);
+                model.element(succ[i], candidates[i], position).post();
+                model.element(dist[i], candidateDistances[i], position).post();
+            }
+        } else {
+            // VARIABLES
+            succ = model.intVarArray("succ", C, 0, C - 1);
+            int max = DISTANCE_UPPER_BOUND;
+            dist = model.intVarArray("dist", C, 0, max);
+            totDist = model.intVar("Total distance", 0, max * C);
+
+            // CONSTRAINTS
+            for (int i = 0; i < C; i++) {
+                Tuples tuples = new Tuples(true);
+                for (int j = 0; j < C; j++) {
+                    if (j != i) tuples.add(j, D.distance(i, j));
+                }
+                model.table(succ[i], dist[i], tuples).post();
             }
-            model.table(succ[i], dist[i], tuples).post();
         }
         model.subCircuit(succ, 0, model.intVar(C)).post();
         model.sum(dist, "=", totDist).post();
-        model.arithm(totDist, "<", (int) Math.ceil(sharedSolution.getBestDistance())).post();
+        if (options.isHeldKarp()) {
+            // avec des listes de candidats, la borne ne vaut que pour le graphe restreint
+            new Constraint("HeldKarp", new HeldKarpPropagator(succ, totDist, D,
+                    options.getHeldKarpRootIterations(), options.getHeldKarpIterations(),
+                    options.getCandidateCount() > 0 ? null : sharedSolution::offerLowerBound)).post();
+        }
         model.setObjective(Model.MINIMIZE, totDist);
 
         Solver solver = model.getSolver();
+        // les tournées partagées (AG et autres modèles) bornent l'objectif pendant la recherche
+        new ObjectiveCutoff(solver, sharedSolution, options.isLns());
+        model.addHook(SUCC_HOOK, succ);
+        model.addHook(OPTIONS_HOOK, options);
+        model.addHook(DISTANCES_HOOK, D);
 
-        final int[] callCount = {0};
-        final int[] SolutionFound = {0};
-
-
-        solver.plugMonitor(new IMonitorUpBranch() {
-            @Override
-            public void afterUpBranch() {
-                callCount[0]++;
-                if (SolutionFound[0] >= 5) { // ne pas prendre les n (à définir) premières solutions
-                    if (callCount[0] % 10000 == 0) {
-                        int sol = totDist.getUB();
-                        for (int i = 0; i < C; i++) {
-                            for (int j = succ[i].getLB(); j <= succ[i].getUB(); j++) {
-                                int connIndex = i * C + j;
-                                int blockIndex = connIndex / 64;
-                                int bitIndex = connIndex % 64;
-                                if (succ[i].contains(j)) {
-                                    connectionsBlocks.get(blockIndex).setConnection(63 - bitIndex, true);
-                                } else {
-                                    connectionsBlocks.get(blockIndex).setConnection(63 - bitIndex, false);
-                                }
-                            }
-                        }
-                        sharedSolution.setConnectionsBlocks(connectionsBlocks);
-
-
-                        double agBestDistance = sharedSolution.getBestDistance();
-                        solver.getEngine().flush();
-                    }
-                }
+        // la tournée de référence sert d'indice pour la première descente
+        if (reference != null) {
+            for (int i = 0; i < C; i++) {
+                solver.addHint(succ[i], reference[i]);
             }
-        });
+        }
 
-        solver.plugMonitor(new IMonitorClose() {
-            @Override
-            public void afterClose() {
-                SolutionFound[0]++;
+        // chaque solution est partagée avec l'AG sous forme de tableau de successeurs
+        final int[] successors = new int[C];
+        solver.plugMonitor((IMonitorSolution) () -> {
+            for (int i = 0; i < C; i++) {
+                successors[i] = succ[i].getValue();
             }
+            sharedSolution.offerTour(successors, totDist.getValue(), SharedSolution.Source.CP);
         });
 
+        // ne pas exporter les n (à définir) premières solutions
+        DomainExporter exporter = new DomainExporter(succ, edgeDomain, EXPORT_INTERVAL_NANOS, EXPORT_CHANGE_THRESHOLD, 5);
+        solver.plugMonitor(exporter);
+
 
         return model;
     }
 
+    /**
+     * Estime la mémoire occupée par un modèle construit par {@link #SolveTSP}, d'après des mesures
+     * sur les instances de 17 à 318 villes. Avec les tables complètes, chaque table garde, pour
+     * chacune des {@value #DISTANCE_UPPER_BOUND} + 1 valeurs de dist[i], un bitset de ses C - 1
+     * couples : la mémoire croît en C² et dépasse 400 Mo dès 100 villes. Avec k candidats, elle
+     * reste de quelques kilo-octets par ville.
+     *
+     * @param C       Le nombre de villes.
+     * @param options Les options du modèle.
+     * @return Le nombre d'octets estimé.
+     */
+    public static long estimateModelBytes(int C, ModelOptions options) {
+        long bytes;
+        if (options.getCandidateCount() > 0) {
+            bytes = 300_000L + C * (4_700L + 250L * options.getCandidateCount());
+        } else {
+            long words = (C + 62) / 64;
+            bytes = (long) C * (DISTANCE_UPPER_BOUND + 1) * (24 + 8 * words);
+        }
+        if (options.isHeldKarp()) {
+            bytes += 8L * C * C;
+        }
+        return bytes;
+    }
+
+    /**
+     * Calcule les successeurs candidats de chaque ville : ses k plus proches voisins, complétés
+     * par son successeur dans la tournée de référence. Le graphe des candidats contient ainsi
+     * toujours une tournée, même lorsque les villes forment des groupes éloignés que les k plus
+     * proches voisins ne relient pas entre eux.
+     */
+    private static int[][] candidateLists(DistanceProvider D, int k, int[] reference) {
+        int[][] nearest = NeighborLists.compute(D, k);
+        int[][] candidates = new int[nearest.length][];
+        for (int i = 0; i < nearest.length; i++) {
+            int successor = reference[i];
+            boolean present = false;
+            for (int c : nearest[i]) {
+                present |= c == successor;
+            }
+            candidates[i] = present ? nearest[i] : Arrays.copyOf(nearest[i], nearest[i].length + 1);
+            if (!present) {
+                candidates[i][nearest[i].length] = successor;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * @return Le tableau des successeurs de la tournée du plus proche voisin partant de la ville 0.
+     */
+    static int[] nearestNeighbourSuccessors(DistanceProvider D) {
+        int C = D.size();
+        int[] successors = new int[C];
+        boolean[] visited = new boolean[C];
+        int city = 0;
+        visited[0] = true;
+        for (int step = 1; step < C; step++) {
+            int next = -1;
+            int best = Integer.MAX_VALUE;
+            for (int j = 0; j < C; j++) {
+                if (!visited[j] && (next < 0 || D.distance(city, j) < best)) {
+                    next = j;
+                    best = D.distance(city, j);
+                }
+            }
+            successors[city] = next;
+            visited[next] = true;
+            city = next;
+        }
+        successors[city] = 0;
+        return successors;
+    }
+
+    /**
+     * Configure la recherche d'un membre du portfolio, construit par {@link #SolveTSP} et ajouté à
+     * un {@code ParallelPortfolio} créé sans configuration automatique de la recherche. À appeler
+     * après {@code ParallelPortfolio.prepare()}.
+     * <p>
+     * Avec la stratégie {@link SuccessorSearch.Heuristic#TOUR_HINT} (par défaut), la recherche
+     * reprend celle du portfolio pour ce rang (heuristique de variable, dernier conflit,
+     * redémarrages géométriques et nogoods), enveloppée par la recherche guidée par la meilleure
+     * tournée partagée ({@link TourHintStrategy}). Les autres stratégies branchent sur les succ
+     * selon les distances ({@link SuccessorSearch}), avec les mêmes redémarrages. En mode LNS, les redémarrages sont
+     * ceux du voisinage et les nogoods ne sont pas enregistrés : extraits d'une recherche dont
+     * une partie des variables est fixée, ils ne seraient pas valides pour le problème complet.
+     *
+     * @param model          Un modèle construit par {@link #SolveTSP}.
+     * @param workerId       Rang du modèle dans le portfolio.
+     * @param sharedSolution L'objet partagé contenant la meilleure tournée.
+     */
+    public static void configureSearch(Model model, int workerId, SharedSolution sharedSolution) {
+        IntVar[] succ = (IntVar[]) model.getHook(SUCC_HOOK);
+        ModelOptions options = (ModelOptions) model.getHook(OPTIONS_HOOK);
+        Solver solver = model.getSolver();
+
+        BlackBoxConfigurator bb = BlackBoxConfigurator.init();
+        if (options.isLns()) {
+            bb.setRestartPolicy(s -> AbstractRestart.NO_RESTART);
+            bb.setNogoodOnRestart(false);
+        } else {
+            bb.setRestartPolicy(SearchParams.Restart.GEOMETRIC, 10, 1.05, 50_000, true);
+            bb.setNogoodOnRestart(true);
+        }
+        bb.setRestartOnSolution(true);
+        bb.setExcludeViews(false);
+        if (options.getSearch() == SuccessorSearch.Heuristic.TOUR_HINT) {
+            Function<Model, IntValueSelector> valueSelection = new SearchParams.ValSelConf(
+                    SearchParams.ValueSelection.MIN, true, 16, true).make();
+            SearchParams.VariableSelection variableSelection = workerId < WORKER_VARIABLE_SELECTION.length
+                    ? WORKER_VARIABLE_SELECTION[workerId] : SearchParams.VariableSelection.CHS;
+            BiFunction<IntVar[], IntValueSelector, AbstractStrategy<IntVar>> variableStrategy =
+                    new SearchParams.VarSelConf(variableSelection, 32).make();
+            bb.setIntVarStrategy(vars -> variableStrategy.apply(vars, valueSelection.apply(model)));
+            int lastConflicts = workerId < WORKER_VARIABLE_SELECTION.length ? 2 : 1;
+            bb.setMetaStrategy(m -> Search.lastConflict(m, lastConflicts));
+            bb.make(model);
+            installTourHint(model, sharedSolution);
+        } else {
+            // branchement sur les succ selon les distances ; les autres variables sont alors fixées
+            SuccessorSearch successorSearch = new SuccessorSearch(succ,
+                    (DistanceProvider) model.getHook(DISTANCES_HOOK), options.getSearch());
+            bb.setMetaStrategy(m -> Search.lastConflict(m, 1));
+            @SuppressWarnings({"rawtypes", "unchecked"})
+            AbstractStrategy<Variable> strategy = (AbstractStrategy) Search.intVarSearch(successorSearch,
+                    successorSearch, succ);
+            bb.complete(model, strategy);
+        }
+
+        if (options.isLns()) {
+            TourNeighborhood neighborhood = new TourNeighborhood(succ, (IntVar) model.getObjective(),
+                    options.getLnsPolicy(), sharedSolution, System.nanoTime() + workerId);
+            solver.setLNS(neighborhood, new FailCounter(model, options.getLnsFailLimit()));
+        }
+    }
+
+    /**
+     * Installe la recherche guidée par la meilleure tournée partagée ({@link TourHintStrategy})
+     * par-dessus la stratégie du modèle. Doit être appelée après toute configuration de la stratégie
+     * ({@link #configureSearch} ou {@code ParallelPortfolio.prepare()} avec configuration automatique).
+     *
+     * @param model          Un modèle construit par {@link #SolveTSP}.
+     * @param sharedSolution L'objet partagé contenant la meilleure tournée.
+     */
+    public static void installTourHint(Model model, SharedSolution sharedSolution) {
+        IntVar[] succ = (IntVar[]) model.getHook(SUCC_HOOK);
+        Solver solver = model.getSolver();
+        if (solver.getSearch() == null) {
+            Search.defaultSearch(model);
+        }
+        AbstractStrategy<Variable> search = solver.getSearch();
+        solver.setSearch(new TourHintStrategy(search, succ, sharedSolution));
+    }
+
 }
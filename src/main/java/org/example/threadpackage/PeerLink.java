@@ -0,0 +1,469 @@
+package org.example.threadpackage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Liaison TCP entre le coordinateur et un processus de calcul d'une résolution répartie
+ * ({@link DistributedCoordinator}, {@link DistributedWorker}).
+ * <p>
+ * Protocole binaire : chaque message est un octet de type suivi de son contenu (entiers
+ * gros-boutistes de {@link DataOutputStream}).
+ * <ul>
+ *     <li>{@code HELLO} (processus → coordinateur) : {@link #MAGIC}, nombre de villes, empreinte
+ *     des distances ({@link DistanceProvider#fingerprint()}) ;</li>
+ *     <li>{@code ASSIGN} (coordinateur → processus) : numéro du processus ;</li>
+ *     <li>{@code TOUR} : longueur, origine, puis les successeurs sur 2 octets (4 au-delà de
+ *     65 536 villes) ;</li>
+ *     <li>{@code BOUND} : borne inférieure ;</li>
+ *     <li>{@code DOMAIN} : mots du domaine des arcs modifiés depuis le dernier envoi sur cette
+ *     liaison, chacun précédé de l'écart à l'indice du précédent (varint) ;</li>
+ *     <li>{@code DONE} (processus → coordinateur) : fin de la recherche, preuve d'optimalité ou non ;</li>
+ *     <li>{@code STOP} (coordinateur → processus) : arrêt de la résolution ;</li>
+ *     <li>{@code HEARTBEAT} : envoyé après une seconde sans message.</li>
+ * </ul>
+ * Les envois ne bloquent pas l'appelant (un thread de recherche) : ils déposent le dernier état à
+ * transmettre et réveillent le thread d'écriture, qui n'envoie que la tournée, la borne et le
+ * domaine les plus récents, le domaine au plus toutes les {@link #DOMAIN_INTERVAL_MILLIS} ms.
+ * Un thread de lecture décode les messages reçus pour le {@link Handler}. Une liaison sans
+ * message reçu pendant {@link #TIMEOUT_MILLIS} ms est considérée comme perdue.
+ */
+final class PeerLink implements AutoCloseable {
+
+    /**
+     * Identifie le protocole (« TSP » et sa version) dans le message {@code HELLO}.
+     */
+    static final int MAGIC = 0x54535002;
+
+    static final long HEARTBEAT_MILLIS = 1000;
+    static final int TIMEOUT_MILLIS = 10_000;
+    static final long DOMAIN_INTERVAL_MILLIS = 200;
+
+    private static final byte HELLO = 1;
+    private static final byte ASSIGN = 2;
+    private static final byte TOUR = 3;
+    private static final byte BOUND = 4;
+    private static final byte DOMAIN = 5;
+    private static final byte DONE = 6;
+    private static final byte STOP = 7;
+    private static final byte HEARTBEAT = 8;
+
+    /**
+     * Destinataire des messages reçus, appelé sur le thread de lecture de la liaison.
+     */
+    interface Handler {
+        /**
+         * @param successors Les successeurs de la tournée (villes de l'instance), tableau réutilisé
+         *                   pour le message suivant.
+         * @param source     L'origine annoncée par l'émetteur, à titre indicatif : une tournée reçue
+         *                   est republiée avec l'origine {@link SharedSolution.Source#REMOTE}.
+         */
+        void onTour(PeerLink link, int[] successors, long length, SharedSolution.Source source);
+
+        void onLowerBound(PeerLink link, long bound);
+
+        /**
+         * @param bits Le domaine des arcs de l'émetteur, modifié en place par les messages suivants.
+         */
+        void onDomain(PeerLink link, long[] bits);
+
+        void onDone(PeerLink link, boolean proof);
+
+        void onStop(PeerLink link);
+
+        /**
+         * Appelé une seule fois, à la fermeture de la liaison.
+         *
+         * @param cause L'erreur qui l'a fermée, ou null pour une fermeture demandée.
+         */
+        void onClose(PeerLink link, IOException cause);
+    }
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final int cityCount;
+    private final int id;
+    private final Handler handler;
+    private final Thread reader;
+    private final Thread writer;
+
+    private final AtomicReference<SharedSolution.Tour> pendingTour = new AtomicReference<>();
+    private volatile long pendingBound;
+    private long sentBound;
+    private final AtomicReference<EdgeDomainStore.Snapshot> pendingDomain = new AtomicReference<>();
+    private final long[] sentDomain;
+    private final long[] receivedDomain;
+    private long lastDomainNanos;
+    private volatile int pendingDone = -1;
+    private volatile boolean pendingStop;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * @param socket    Une connexion dont l'échange HELLO / ASSIGN est terminé.
+     * @param streams   Les flux de cette connexion, déjà ouverts pour l'échange initial.
+     * @param cityCount Le nombre de villes de l'instance.
+     * @param id        Le numéro du processus de calcul.
+     * @param handler   Le destinataire des messages reçus.
+     */
+    PeerLink(Socket socket, Streams streams, int cityCount, int id, Handler handler) {
+        this.socket = socket;
+        this.in = streams.in;
+        this.out = streams.out;
+        this.cityCount = cityCount;
+        this.id = id;
+        this.handler = handler;
+        int words = (int) (((long) cityCount * cityCount + 63) >>> 6);
+        this.sentDomain = new long[words];
+        this.receivedDomain = new long[words];
+        Arrays.fill(sentDomain, -1L);
+        Arrays.fill(receivedDomain, -1L);
+        this.reader = new Thread(this::read, "peer-" + id + "-reader");
+        this.writer = new Thread(this::write, "peer-" + id + "-writer");
+        reader.setDaemon(true);
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Flux tamponnés d'une connexion.
+     */
+    static final class Streams {
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Streams(Socket socket) throws IOException {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(TIMEOUT_MILLIS);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+    }
+
+    /**
+     * Envoie le message {@code HELLO} et attend le numéro attribué par le coordinateur.
+     *
+     * @param cityCount   Le nombre de villes de l'instance.
+     * @param fingerprint L'empreinte de ses distances.
+     * @return Le numéro du processus.
+     * @throws IOException Si le coordinateur refuse la connexion (instance différente).
+     */
+    static int hello(Streams streams, int cityCount, long fingerprint) throws IOException {
+        streams.out.writeByte(HELLO);
+        streams.out.writeInt(MAGIC);
+        streams.out.writeInt(cityCount);
+        streams.out.writeLong(fingerprint);
+        streams.out.flush();
+        byte type;
+        try {
+            type = streams.in.readByte();
+        } catch (EOFException e) {
+            throw new IOException("Connexion refusée par le coordinateur (instance différente)");
+        }
+        if (type != ASSIGN) {
+            throw new IOException("Réponse inattendue du coordinateur");
+        }
+        return streams.in.readInt();
+    }
+
+    /**
+     * Lit le message {@code HELLO} d'un processus de calcul et vérifie qu'il résout la même instance.
+     *
+     * @param cityCount   Le nombre de villes de l'instance du coordinateur.
+     * @param fingerprint L'empreinte de ses distances.
+     * @throws IOException Si le message n'est pas celui du protocole ou si l'instance diffère.
+     */
+    static void readHello(Streams streams, int cityCount, long fingerprint) throws IOException {
+        if (streams.in.readByte() != HELLO || streams.in.readInt() != MAGIC) {
+            throw new IOException("Protocole inconnu");
+        }
+        int remoteCityCount = streams.in.readInt();
+        if (remoteCityCount != cityCount) {
+            throw new IOException(remoteCityCount + " villes au lieu de " + cityCount);
+        }
+        if (streams.in.readLong() != fingerprint) {
+            throw new IOException("distances différentes de celles de l'instance");
+        }
+    }
+
+    /**
+     * Attribue son numéro à un processus de calcul.
+     */
+    static void assign(Streams streams, int id) throws IOException {
+        streams.out.writeByte(ASSIGN);
+        streams.out.writeInt(id);
+        streams.out.flush();
+    }
+
+    /**
+     * Démarre les threads de lecture et d'écriture.
+     */
+    void start() {
+        lastDomainNanos = System.nanoTime();
+        reader.start();
+        writer.start();
+    }
+
+    int getId() {
+        return id;
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    void sendTour(SharedSolution.Tour tour) {
+        SharedSolution.Tour previous = pendingTour.get();
+        while ((previous == null || previous.getLength() > tour.getLength())
+                && !pendingTour.compareAndSet(previous, tour)) {
+            previous = pendingTour.get();
+        }
+        LockSupport.unpark(writer);
+    }
+
+    void sendLowerBound(long bound) {
+        synchronized (this) {
+            pendingBound = Math.max(pendingBound, bound);
+        }
+        LockSupport.unpark(writer);
+    }
+
+    void sendDomain(EdgeDomainStore.Snapshot snapshot) {
+        pendingDomain.set(snapshot);
+        LockSupport.unpark(writer);
+    }
+
+    void sendDone(boolean proof) {
+        pendingDone = proof ? 1 : 0;
+        LockSupport.unpark(writer);
+    }
+
+    void sendStop() {
+        pendingStop = true;
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Attend que les messages déposés soient envoyés, puis ferme la connexion.
+     *
+     * @param timeoutMillis Délai maximal d'attente.
+     */
+    void drain(long timeoutMillis) throws InterruptedException {
+        writer.join(timeoutMillis);
+        close();
+    }
+
+    private void write() {
+        long lastWrite = System.nanoTime();
+        try {
+            while (!closed.get()) {
+                // STOP et DONE sont les derniers messages de la liaison
+                boolean last = pendingStop || pendingDone >= 0;
+                boolean wrote = writePending();
+                long now = System.nanoTime();
+                if (wrote) {
+                    lastWrite = now;
+                } else if (now - lastWrite >= HEARTBEAT_MILLIS * 1_000_000) {
+                    out.writeByte(HEARTBEAT);
+                    out.flush();
+                    lastWrite = now;
+                }
+                if (last) {
+                    return;
+                }
+                LockSupport.parkNanos(this, pendingDomain.get() != null
+                        ? DOMAIN_INTERVAL_MILLIS * 1_000_000 : HEARTBEAT_MILLIS * 1_000_000);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * @return true si au moins un message a été écrit.
+     */
+    private boolean writePending() throws IOException {
+        boolean wrote = false;
+        SharedSolution.Tour tour = pendingTour.getAndSet(null);
+        if (tour != null) {
+            writeTour(tour);
+            wrote = true;
+        }
+        long bound = pendingBound;
+        if (bound > sentBound) {
+            out.writeByte(BOUND);
+            out.writeLong(bound);
+            sentBound = bound;
+            wrote = true;
+        }
+        long now = System.nanoTime();
+        if (now - lastDomainNanos >= DOMAIN_INTERVAL_MILLIS * 1_000_000) {
+            EdgeDomainStore.Snapshot snapshot = pendingDomain.getAndSet(null);
+            if (snapshot != null) {
+                wrote |= writeDomain(snapshot.copyBits());
+                lastDomainNanos = now;
+            }
+        }
+        if (pendingDone >= 0) {
+            out.writeByte(DONE);
+            out.writeBoolean(pendingDone == 1);
+            wrote = true;
+        }
+        if (pendingStop) {
+            out.writeByte(STOP);
+            wrote = true;
+        }
+        if (wrote) {
+            out.flush();
+        }
+        return wrote;
+    }
+
+    private void writeTour(SharedSolution.Tour tour) throws IOException {
+        out.writeByte(TOUR);
+        out.writeLong(tour.getLength());
+        out.writeByte(tour.getSource().ordinal());
+        for (int i = 0; i < cityCount; i++) {
+            if (cityCount <= 1 << 16) {
+                out.writeShort(tour.successor(i));
+            } else {
+                out.writeInt(tour.successor(i));
+            }
+        }
+    }
+
+    /**
+     * Écrit les mots du domaine modifiés depuis le dernier envoi.
+     *
+     * @return false si le domaine n'a pas changé (rien n'est écrit).
+     */
+    private boolean writeDomain(long[] bits) throws IOException {
+        int changed = 0;
+        for (int w = 0; w < bits.length; w++) {
+            if (bits[w] != sentDomain[w]) {
+                changed++;
+            }
+        }
+        if (changed == 0) {
+            return false;
+        }
+        out.writeByte(DOMAIN);
+        out.writeInt(changed);
+        int previous = 0;
+        for (int w = 0; w < bits.length; w++) {
+            if (bits[w] != sentDomain[w]) {
+                writeVarint(w - previous);
+                out.writeLong(bits[w]);
+                sentDomain[w] = bits[w];
+                previous = w;
+            }
+        }
+        return true;
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 28) {
+                throw new IOException("Message invalide : entier trop long");
+            }
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private void read() {
+        try {
+            int[] successors = new int[cityCount];
+            while (!closed.get()) {
+                byte type = in.readByte();
+                switch (type) {
+                    case TOUR -> {
+                        long length = in.readLong();
+                        int ordinal = in.readUnsignedByte();
+                        if (ordinal >= SharedSolution.Source.values().length) {
+                            throw new IOException("Message invalide : origine " + ordinal);
+                        }
+                        SharedSolution.Source source = SharedSolution.Source.values()[ordinal];
+                        for (int i = 0; i < cityCount; i++) {
+                            int next = cityCount <= 1 << 16 ? in.readUnsignedShort() : in.readInt();
+                            if (next < 0 || next >= cityCount) {
+                                throw new IOException("Message invalide : ville " + next);
+                            }
+                            successors[i] = next;
+                        }
+                        handler.onTour(this, successors, length, source);
+                    }
+                    case BOUND -> handler.onLowerBound(this, in.readLong());
+                    case DOMAIN -> {
+                        int changed = in.readInt();
+                        if (changed < 0 || changed > receivedDomain.length) {
+                            throw new IOException("Message invalide : " + changed + " mots de domaine");
+                        }
+                        long w = 0;
+                        for (int k = 0; k < changed; k++) {
+                            w += readVarint();
+                            if (w < 0 || w >= receivedDomain.length) {
+                                throw new IOException("Message invalide : mot de domaine " + w);
+                            }
+                            receivedDomain[(int) w] = in.readLong();
+                        }
+                        handler.onDomain(this, receivedDomain);
+                    }
+                    case DONE -> handler.onDone(this, in.readBoolean());
+                    case STOP -> handler.onStop(this);
+                    case HEARTBEAT -> {
+                    }
+                    default -> throw new IOException("Message inconnu : " + type);
+                }
+            }
+        } catch (EOFException e) {
+            fail(null);
+        } catch (IOException | RuntimeException e) {
+            fail(e instanceof IOException io ? io : new IOException(e));
+        }
+    }
+
+    private void fail(IOException cause) {
+        if (closed.compareAndSet(false, true)) {
+            closeSocket();
+            LockSupport.unpark(writer);
+            handler.onClose(this, cause);
+        }
+    }
+
+    /**
+     * Ferme la connexion sans attendre l'envoi des messages déposés.
+     */
+    @Override
+    public void close() {
+        fail(null);
+    }
+
+    private void closeSocket() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // connexion déjà perdue
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package org.example.threadpackage;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Moteur génétique spécialisé sur des permutations d'entiers primitifs ({@code int[]}).
+ * <p>
+ * Contrairement au chemin Jenetics ({@code EnumGene<Integer>}), les individus sont des tableaux
+ * {@code int[]} et leur longueur de tournée est un {@code long} : l'évaluation d'une population
+ * ne fait aucune conversion en objet. Les populations courante et suivante sont deux tampons
+ * alloués une seule fois et échangés à chaque génération.
+ */
+public final class PermutationEngine {
+
+    /**
+     * Longueur attribuée à une tournée empruntant un arc interdit.
+     */
+    public static final long INFEASIBLE = Long.MAX_VALUE;
+
+    /**
+     * Nombre de générations entre deux réévaluations complètes de la population, qui vérifient
+     * les longueurs obtenues par mise à jour incrémentale.
+     */
+    static final int CONSISTENCY_CHECK_INTERVAL = 1000;
+
+    private static final long UNKNOWN = -1;
+
+    private final int cityCount;
+    private final int populationSize;
+    private final int tournamentSize;
+    private final double mutationRate;
+    private final double crossoverRate;
+    private final SplittableRandom random;
+
+    private final DistanceProvider distances;
+    private TourEvaluator evaluator;
+    private int[][] population;
+    private int[][] offspring;
+    private long[] lengths;
+    private long[] offspringLengths;
+    private final int[] positions;
+
+    // positions modifiées de l'enfant courant (marquées par le numéro d'enfant en cours)
+    private final int[] changedStamp;
+    private final int[] changed;
+    private int changedCount;
+    private int stamp = 0;
+    private final int[] pending;
+    private long deltaEvaluations = 0;
+    private long fullEvaluations = 0;
+    private long inconsistencies = 0;
+
+    private LocalSearch localSearch;
+    private double localSearchRate;
+
+    private int bestIndex;
+    private long generations = 0;
+    private long evolutionNanos = 0;
+
+    /**
+     * Crée un moteur dont la population initiale est tirée aléatoirement.
+     *
+     * @param distances      Les distances entre villes (Integer.MAX_VALUE pour un arc interdit).
+     * @param populationSize Taille de la population.
+     * @param mutationRate   Probabilité qu'un enfant subisse un échange de deux villes.
+     * @param crossoverRate  Probabilité qu'un enfant soit issu d'un croisement PMX.
+     * @param seed           Graine du générateur aléatoire.
+     */
+    public PermutationEngine(DistanceProvider distances, int populationSize, double mutationRate,
+                             double crossoverRate, long seed) {
+        this.distances = distances;
+        this.evaluator = TourEvaluator.create(distances, false);
+        this.cityCount = distances.size();
+        this.populationSize = populationSize;
+        this.tournamentSize = 3;
+        this.mutationRate = mutationRate;
+        this.crossoverRate = crossoverRate;
+        this.random = new SplittableRandom(seed);
+        this.population = new int[populationSize][cityCount];
+        this.offspring = new int[populationSize][cityCount];
+        this.lengths = new long[populationSize];
+        this.offspringLengths = new long[populationSize];
+        this.positions = new int[cityCount];
+        this.changedStamp = new int[cityCount];
+        this.changed = new int[cityCount];
+        this.pending = new int[populationSize];
+
+        for (int[] tour : population) {
+            for (int i = 0; i < cityCount; i++) {
+                tour[i] = i;
+            }
+            shuffle(tour);
+        }
+        evaluatePopulation();
+    }
+
+    /**
+     * Calcule la longueur d'une tournée fermée.
+     *
+     * @param tour      Permutation des villes.
+     * @param distances Les distances entre villes.
+     * @return La longueur de la tournée, ou {@link #INFEASIBLE} si un arc est interdit.
+     */
+    public static long length(int[] tour, DistanceProvider distances) {
+        long total = 0;
+        int from = tour[tour.length - 1];
+        for (int to : tour) {
+            int d = distances.distance(from, to);
+            if (d == Integer.MAX_VALUE) {
+                return INFEASIBLE;
+            }
+            total += d;
+            from = to;
+        }
+        return total;
+    }
+
+    /**
+     * Calcule la longueur d'une tournée donnée par ses successeurs, en vérifiant qu'elle forme un
+     * seul cycle passant par toutes les villes.
+     *
+     * @param successors Successeur de chaque ville.
+     * @param distances  Les distances entre villes.
+     * @return La longueur de la tournée, {@link #INFEASIBLE} si un arc est interdit, ou -1 si ce
+     * n'est pas un cycle hamiltonien.
+     */
+    public static long successorLength(int[] successors, DistanceProvider distances) {
+        int n = distances.size();
+        if (successors.length != n) {
+            return -1;
+        }
+        long total = 0;
+        boolean infeasible = false;
+        int city = 0;
+        for (int k = 0; k < n; k++) {
+            int next = successors[city];
+            if (next < 0 || next >= n || next == city) {
+                return -1;
+            }
+            int d = distances.distance(city, next);
+            infeasible |= d == Integer.MAX_VALUE;
+            total += d;
+            city = next;
+            if (city == 0 && k < n - 1) {
+                return -1; // sous-cycle
+            }
+        }
+        if (city != 0) {
+            return -1;
+        }
+        return infeasible ? INFEASIBLE : total;
+    }
+
+    /**
+     * @return true si tour contient chaque ville de 0 à cityCount - 1 exactement une fois.
+     */
+    public static boolean isPermutation(int[] tour, int cityCount) {
+        if (tour == null || tour.length != cityCount) {
+            return false;
+        }
+        boolean[] seen = new boolean[cityCount];
+        for (int city : tour) {
+            if (city < 0 || city >= cityCount || seen[city]) {
+                return false;
+            }
+            seen[city] = true;
+        }
+        return true;
+    }
+
+    /**
+     * Fait évoluer la population.
+     *
+     * @param generationCount Nombre de générations à exécuter.
+     */
+    public void evolve(int generationCount) {
+        long start = System.nanoTime();
+        for (int g = 0; g < generationCount; g++) {
+            nextGeneration();
+        }
+        evolutionNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Produit la génération suivante : élitisme, sélection par tournoi, PMX, échange, évaluation
+     * des enfants puis, si elle est activée, recherche locale.
+     * <p>
+     * Les opérateurs notent les positions qu'ils modifient : la longueur d'un enfant est déduite
+     * de celle de son parent en ne recalculant que les arcs touchés (O(1) pour un échange,
+     * O(segment) pour un PMX). Seuls les enfants trop modifiés, ou dont le parent est irréalisable,
+     * sont évalués entièrement, en un lot.
+     */
+    private void nextGeneration() {
+        System.arraycopy(population[bestIndex], 0, offspring[0], 0, cityCount);
+        offspringLengths[0] = lengths[bestIndex];
+        int pendingCount = 0;
+        for (int k = 1; k < populationSize; k++) {
+            int[] child = offspring[k];
+            int p = tournament();
+            int[] parent = population[p];
+            System.arraycopy(parent, 0, child, 0, cityCount);
+            startChild();
+            if (random.nextDouble() < crossoverRate) {
+                pmx(child, population[tournament()]);
+            }
+            if (random.nextDouble() < mutationRate) {
+                swap(child);
+            }
+            offspringLengths[k] = deltaLength(child, parent, lengths[p]);
+            if (offspringLengths[k] == UNKNOWN) {
+                pending[pendingCount++] = k;
+            }
+        }
+        evaluator.evaluate(offspring, pending, pendingCount, offspringLengths);
+        deltaEvaluations += populationSize - 1 - pendingCount;
+        fullEvaluations += pendingCount;
+        if (localSearch != null) {
+            for (int k = 1; k < populationSize; k++) {
+                if (random.nextDouble() < localSearchRate) {
+                    offspringLengths[k] = localSearch.improve(offspring[k], offspringLengths[k]);
+                }
+            }
+        }
+
+        int[][] tours = population;
+        population = offspring;
+        offspring = tours;
+        long[] l = lengths;
+        lengths = offspringLengths;
+        offspringLengths = l;
+        updateBest();
+        generations++;
+        if (generations % CONSISTENCY_CHECK_INTERVAL == 0) {
+            checkLengths();
+        }
+    }
+
+    private void startChild() {
+        changedCount = 0;
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(changedStamp, 0);
+            stamp = 1;
+        }
+    }
+
+    private void markChanged(int position) {
+        if (changedStamp[position] != stamp) {
+            changedStamp[position] = stamp;
+            changed[changedCount++] = position;
+        }
+    }
+
+    /**
+     * Longueur de l'enfant déduite de celle de son parent : pour chaque position modifiée, l'arc
+     * vers la position suivante et, si la position précédente n'a pas été modifiée, l'arc depuis
+     * celle-ci sont remplacés.
+     *
+     * @return La longueur de l'enfant, ou {@link #UNKNOWN} si une évaluation complète est préférable.
+     */
+    private long deltaLength(int[] child, int[] parent, long parentLength) {
+        if (parentLength == INFEASIBLE || changedCount * 2 > cityCount) {
+            return UNKNOWN;
+        }
+        long length = parentLength;
+        for (int c = 0; c < changedCount; c++) {
+            int p = changed[c];
+            int next = p + 1 == cityCount ? 0 : p + 1;
+            int d = distances.distance(child[p], child[next]);
+            if (d == Integer.MAX_VALUE) {
+                return INFEASIBLE;
+            }
+            length += d - distances.distance(parent[p], parent[next]);
+            int previous = p == 0 ? cityCount - 1 : p - 1;
+            if (changedStamp[previous] != stamp) {
+                d = distances.distance(child[previous], child[p]);
+                if (d == Integer.MAX_VALUE) {
+                    return INFEASIBLE;
+                }
+                length += d - distances.distance(parent[previous], parent[p]);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Réévalue entièrement la population et corrige les longueurs qui divergeraient de la mise à
+     * jour incrémentale.
+     */
+    private void checkLengths() {
+        evaluator.evaluate(population, 0, populationSize, offspringLengths);
+        for (int k = 0; k < populationSize; k++) {
+            if (offspringLengths[k] != lengths[k]) {
+                lengths[k] = offspringLengths[k];
+                inconsistencies++;
+            }
+        }
+        updateBest();
+    }
+
+    /**
+     * Croisement PMX appliqué en place : l'enfant (copie du premier parent) reçoit le segment
+     * du second parent, les conflits étant résolus par échanges successifs.
+     */
+    private void pmx(int[] child, int[] other) {
+        for (int i = 0; i < cityCount; i++) {
+            positions[child[i]] = i;
+        }
+        int a = random.nextInt(cityCount);
+        int b = random.nextInt(cityCount);
+        if (a > b) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        for (int i = a; i <= b; i++) {
+            int city = other[i];
+            int j = positions[city];
+            if (j != i) {
+                int displaced = child[i];
+                child[i] = city;
+                child[j] = displaced;
+                positions[city] = i;
+                positions[displaced] = j;
+                markChanged(i);
+                markChanged(j);
+            }
+        }
+    }
+
+    /**
+     * Mutation par échange de deux villes.
+     */
+    private void swap(int[] tour) {
+        int i = random.nextInt(cityCount);
+        int j = random.nextInt(cityCount);
+        int t = tour[i];
+        tour[i] = tour[j];
+        tour[j] = t;
+        if (i != j) {
+            markChanged(i);
+            markChanged(j);
+        }
+    }
+
+    private void shuffle(int[] tour) {
+        for (int i = tour.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = tour[i];
+            tour[i] = tour[j];
+            tour[j] = t;
+        }
+    }
+
+    private int tournament() {
+        int winner = random.nextInt(populationSize);
+        for (int t = 1; t < tournamentSize; t++) {
+            int challenger = random.nextInt(populationSize);
+            if (lengths[challenger] < lengths[winner]) {
+                winner = challenger;
+            }
+        }
+        return winner;
+    }
+
+    /**
+     * Remplace l'évaluateur des tournées (par exemple par la version vectorielle).
+     *
+     * @param evaluator Évaluateur lisant les mêmes distances que ce moteur.
+     */
+    public void setEvaluator(TourEvaluator evaluator) {
+        this.evaluator = evaluator;
+        evaluatePopulation();
+    }
+
+    /**
+     * Active l'étape mémétique : une fraction des enfants est améliorée par recherche locale.
+     *
+     * @param localSearch     La recherche locale (partageant les distances de ce moteur).
+     * @param localSearchRate Probabilité qu'un enfant soit amélioré.
+     */
+    public void setLocalSearch(LocalSearch localSearch, double localSearchRate) {
+        this.localSearch = localSearch;
+        this.localSearchRate = localSearchRate;
+    }
+
+    /**
+     * À appeler lorsque les distances ont changé (nouveau domaine des arcs) :
+     * les individus devenus irréalisables sont réparés, puis toute la population est réévaluée.
+     * La population évoluée est ainsi conservée d'une époque à l'autre.
+     *
+     * @return Le nombre d'individus réparés.
+     */
+    public int onDistancesChanged() {
+        evaluator.onDistancesChanged();
+        int repaired = 0;
+        for (int k = 0; k < populationSize; k++) {
+            if (length(population[k], distances) == INFEASIBLE && repair(population[k])) {
+                repaired++;
+            }
+        }
+        evaluatePopulation();
+        return repaired;
+    }
+
+    /**
+     * Réparation gloutonne d'une tournée : pour chaque arc interdit (a, b), la ville b est échangée
+     * avec une ville c telle que les arcs (a, c) et (c, suivant de b) soient autorisés.
+     *
+     * @param tour Tournée à réparer en place.
+     * @return true si la tournée est réalisable après réparation.
+     */
+    private boolean repair(int[] tour) {
+        for (int k = 0; k < cityCount; k++) {
+            int a = tour[k];
+            int p = k + 1 == cityCount ? 0 : k + 1;
+            if (distances.distance(a, tour[p]) != Integer.MAX_VALUE) {
+                continue;
+            }
+            int next = tour[p + 1 >= cityCount ? p + 1 - cityCount : p + 1];
+            int offset = random.nextInt(cityCount);
+            for (int t = 0; t < cityCount; t++) {
+                int m = t + offset >= cityCount ? t + offset - cityCount : t + offset;
+                int c = tour[m];
+                if (m == p || c == a || c == next) {
+                    continue;
+                }
+                if (distances.distance(a, c) != Integer.MAX_VALUE && distances.distance(c, next) != Integer.MAX_VALUE) {
+                    tour[m] = tour[p];
+                    tour[p] = c;
+                    break;
+                }
+            }
+        }
+        return length(tour, distances) != INFEASIBLE;
+    }
+
+    /**
+     * Injecte une tournée externe (par exemple trouvée par la PPC) à la place du pire individu.
+     *
+     * @param tour Ordre de visite des villes.
+     */
+    public void inject(int[] tour) {
+        int worst = 0;
+        for (int k = 1; k < populationSize; k++) {
+            if (lengths[k] > lengths[worst]) {
+                worst = k;
+            }
+        }
+        System.arraycopy(tour, 0, population[worst], 0, cityCount);
+        lengths[worst] = evaluator.length(population[worst]);
+        if (lengths[worst] < lengths[bestIndex]) {
+            bestIndex = worst;
+        }
+    }
+
+    /**
+     * Remplace les premiers individus par des tournées données (reprise d'un point de contrôle),
+     * puis réévalue la population.
+     *
+     * @param tours Ordres de visite des villes ; les tournées en surnombre sont ignorées.
+     * @throws IllegalArgumentException Si une tournée n'est pas une permutation des villes ; la
+     *                                  population est alors inchangée.
+     */
+    public void seed(int[][] tours) {
+        int count = Math.min(tours.length, populationSize);
+        for (int k = 0; k < count; k++) {
+            if (!isPermutation(tours[k], cityCount)) {
+                throw new IllegalArgumentException("L'individu " + k + " n'est pas une permutation des villes");
+            }
+        }
+        for (int k = 0; k < count; k++) {
+            System.arraycopy(tours[k], 0, population[k], 0, cityCount);
+        }
+        evaluatePopulation();
+    }
+
+    /**
+     * @return Une copie de la population (ordres de visite des villes).
+     */
+    public int[][] getPopulation() {
+        int[][] copy = new int[populationSize][];
+        for (int k = 0; k < populationSize; k++) {
+            copy[k] = population[k].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Réévalue toute la population avec les distances courantes.
+     */
+    public void evaluatePopulation() {
+        evaluator.evaluate(population, 0, populationSize, lengths);
+        updateBest();
+    }
+
+    private void updateBest() {
+        int best = 0;
+        for (int k = 1; k < populationSize; k++) {
+            if (lengths[k] < lengths[best]) {
+                best = k;
+            }
+        }
+        bestIndex = best;
+    }
+
+    /**
+     * @return La longueur du meilleur individu, ou {@link #INFEASIBLE} si aucun n'est réalisable.
+     */
+    public long getBestLength() {
+        return lengths[bestIndex];
+    }
+
+    /**
+     * @return Une copie de la meilleure tournée (ordre de visite des villes).
+     */
+    public int[] getBestTour() {
+        return population[bestIndex].clone();
+    }
+
+    /**
+     * @return Les tableaux de successeurs des individus réalisables de la population (copies).
+     */
+    public int[][] getFeasibleSuccessors() {
+        int count = 0;
+        for (int k = 0; k < populationSize; k++) {
+            if (lengths[k] != INFEASIBLE) {
+                count++;
+            }
+        }
+        int[][] successors = new int[count][];
+        int n = 0;
+        for (int k = 0; k < populationSize; k++) {
+            if (lengths[k] != INFEASIBLE) {
+                successors[n++] = SharedSolution.Tour.successorsOf(population[k]);
+            }
+        }
+        return successors;
+    }
+
+    /**
+     * @return La part des enfants évalués par mise à jour incrémentale.
+     */
+    public double getDeltaEvaluationRatio() {
+        long total = deltaEvaluations + fullEvaluations;
+        return total == 0 ? 0.0 : (double) deltaEvaluations / total;
+    }
+
+    /**
+     * @return Le nombre de longueurs corrigées par les réévaluations complètes périodiques.
+     */
+    public long getInconsistencies() {
+        return inconsistencies;
+    }
+
+    public long getGenerations() {
+        return generations;
+    }
+
+    /**
+     * @return Le nombre de générations par seconde depuis la création du moteur.
+     */
+    public double getGenerationsPerSecond() {
+        return evolutionNanos == 0 ? 0.0 : generations * 1e9 / evolutionNanos;
+    }
+}
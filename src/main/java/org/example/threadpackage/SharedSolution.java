@@ -1,51 +1,31 @@
 package org.example.threadpackage;
 
-import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Classe singleton permettant de partager l'état de la meilleure solution et des blocs de connexion
+ * Classe singleton permettant de partager l'état de la meilleure solution (distance et tournée)
  * entre différents threads exécutant un algorithme génétique.
  */
 public class SharedSolution {
     private static SharedSolution instance;
 
-    private List<CityConnections> connectionsBlocks;
     private double bestDistance = Double.MAX_VALUE;
     private boolean distanceUpdated = false;
     private boolean agImprovedSolution = false;
     private volatile boolean stop = false;
+    private final AtomicReference<Tour> bestTour = new AtomicReference<>();
+    private final AtomicLong tourVersions = new AtomicLong();
+    private final AtomicReference<int[][]> population = new AtomicReference<>();
+    private final SolverMetrics metrics = new SolverMetrics();
+    private final AtomicLong lowerBound = new AtomicLong();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
 
 
     SharedSolution() {
     }
 
-    /**
-     * Définit la liste des blocs de connexion et notifie les threads en attente.
-     *
-     * @param blocks Liste des blocs de connexion à définir.
-     */
-    public synchronized void setConnectionsBlocks(List<CityConnections> blocks) {
-        this.connectionsBlocks = blocks;
-        notifyAll();
-    }
-
-    /**
-     * Retourne la liste des blocs de connexion. Si elle n'est pas encore définie,
-     * la méthode attend qu'une autre thread la définisse.
-     *
-     * @return La liste des blocs de connexion.
-     */
-    public synchronized List<CityConnections> getConnectionsBlocks() {
-        while (connectionsBlocks == null) {
-            try {
-                wait();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
-        return connectionsBlocks;
-    }
-
     /**
      * Met à jour la meilleure distance trouvée si elle est inférieure à la précédente.
      * Marque également la distance comme mise à jour et indique qu'une meilleure solution
@@ -72,12 +52,217 @@ public class SharedSolution {
         return bestDistance;
     }
 
+    /**
+     * Propose une tournée. Elle remplace la meilleure tournée partagée (par CAS, sans verrou)
+     * uniquement si elle est strictement plus courte.
+     *
+     * @param successors Tableau des successeurs : successors[i] est la ville visitée après i.
+     * @param length     Longueur de la tournée.
+     * @param source     Origine de la tournée.
+     * @return true si la tournée est devenue la meilleure tournée partagée.
+     */
+    public boolean offerTour(int[] successors, long length, Source source) {
+        Tour candidate = null;
+        Tour current;
+        do {
+            current = bestTour.get();
+            if (current != null && current.length <= length) {
+                return false;
+            }
+            if (candidate == null) {
+                candidate = new Tour(successors.clone(), length, source, tourVersions.incrementAndGet());
+            }
+        } while (!bestTour.compareAndSet(current, candidate));
+        setBestDistance(length);
+        metrics.recordImprovement(length, source);
+        for (Listener listener : listeners) {
+            listener.onTour(candidate);
+        }
+        return true;
+    }
+
+    /**
+     * Propose une borne inférieure de la longueur d'une tournée optimale. Seules les bornes valides
+     * pour l'instance complète (et non pour un sous-problème) doivent être proposées.
+     *
+     * @param bound Borne inférieure.
+     * @return true si la borne améliore la meilleure borne connue.
+     */
+    public boolean offerLowerBound(long bound) {
+        long previous = lowerBound.getAndAccumulate(bound, Math::max);
+        if (bound <= previous) {
+            return false;
+        }
+        for (Listener listener : listeners) {
+            listener.onLowerBound(bound);
+        }
+        return true;
+    }
+
+    /**
+     * @return La meilleure borne inférieure connue (0 si aucune n'a été proposée).
+     */
+    public long getLowerBound() {
+        return lowerBound.get();
+    }
+
+    /**
+     * Abonne un écouteur aux nouvelles meilleures tournées, aux nouvelles bornes et à l'arrêt.
+     * Les écouteurs sont appelés sur le thread qui publie (un thread de recherche PPC ou de l'AG) :
+     * ils doivent se contenter de réveiller leur destinataire.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return La meilleure tournée partagée, ou null si aucune n'a encore été proposée.
+     */
+    public Tour getBestTour() {
+        return bestTour.get();
+    }
+
+    /**
+     * Publie les tableaux de successeurs de la population de l'AG. Le tableau publié n'est plus
+     * modifié ensuite : les lecteurs peuvent le parcourir sans copie.
+     *
+     * @param successors successors[p][i] est la ville visitée après i dans l'individu p.
+     */
+    public void publishPopulation(int[][] successors) {
+        population.set(successors);
+    }
+
+    /**
+     * @return La dernière population publiée par l'AG, ou null si aucune ne l'a encore été.
+     */
+    public int[][] getPopulation() {
+        return population.get();
+    }
+
+    /**
+     * @return Les mesures du solveur.
+     */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
 
     public boolean isStopped() {
         return stop;
     }
 
     public void stopExecution() {
+        if (stop) {
+            return;
+        }
         this.stop = true;
+        for (Listener listener : listeners) {
+            listener.onStop();
+        }
+    }
+
+    /**
+     * Écouteur des événements de la solution partagée.
+     */
+    public interface Listener {
+        /**
+         * Une nouvelle meilleure tournée a été installée.
+         */
+        default void onTour(Tour tour) {
+        }
+
+        /**
+         * La borne inférieure a été améliorée.
+         */
+        default void onLowerBound(long bound) {
+        }
+
+        /**
+         * L'arrêt a été demandé.
+         */
+        default void onStop() {
+        }
+    }
+
+    /**
+     * Origine d'une tournée partagée. {@link #REMOTE} : tournée reçue d'un autre processus
+     * ({@link DistributedWorker}), qu'elle vienne de sa PPC ou de son AG.
+     */
+    public enum Source {
+        CP, GA, REMOTE
+    }
+
+    /**
+     * Tournée immuable représentée par son tableau de successeurs.
+     */
+    public static final class Tour {
+        private final int[] successors;
+        private final long length;
+        private final Source source;
+        private final long version;
+        private final long publishedNanos = System.nanoTime();
+
+        private Tour(int[] successors, long length, Source source, long version) {
+            this.successors = successors;
+            this.length = length;
+            this.source = source;
+            this.version = version;
+        }
+
+        /**
+         * @return La ville visitée après la ville donnée.
+         */
+        public int successor(int city) {
+            return successors[city];
+        }
+
+        public int size() {
+            return successors.length;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public Source getSource() {
+            return source;
+        }
+
+        /**
+         * @return Numéro de version, strictement croissant à chaque nouvelle meilleure tournée.
+         */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * @return L'instant de création de la tournée (System.nanoTime()).
+         */
+        public long getPublishedNanos() {
+            return publishedNanos;
+        }
+
+        /**
+         * Convertit la tournée en ordre de visite à partir de la ville 0.
+         *
+         * @param order Tableau de destination, de taille {@link #size()}.
+         */
+        public void toOrder(int[] order) {
+            int city = 0;
+            for (int k = 0; k < successors.length; k++) {
+                order[k] = city;
+                city = successors[city];
+            }
+        }
+
+        /**
+         * Construit le tableau des successeurs d'un ordre de visite.
+         */
+        public static int[] successorsOf(int[] order) {
+            int[] successors = new int[order.length];
+            for (int k = 0; k < order.length; k++) {
+                successors[order[k]] = order[k + 1 == order.length ? 0 : k + 1];
+            }
+            return successors;
+        }
     }
 }
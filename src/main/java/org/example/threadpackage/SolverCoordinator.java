@@ -0,0 +1,257 @@
+package org.example.threadpackage;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.ParallelPortfolio;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ordonnanceur d'une résolution : portefeuille PPC et îles de l'AG tournent jusqu'à épuisement
+ * d'un budget global, puis s'arrêtent dans un délai borné.
+ * <p>
+ * Le budget est un temps de calcul et/ou un écart relatif entre la meilleure tournée et la
+ * meilleure borne inférieure (racine Held-Karp des modèles complets). Un thread de surveillance
+ * dort jusqu'à l'échéance et n'est réveillé que par une nouvelle tournée ou une nouvelle borne ;
+ * lorsque le budget est atteint il demande l'arrêt. L'arrêt est coopératif : chaque solveur
+ * du portefeuille a {@link SharedSolution#isStopped()} pour critère d'arrêt, et chaque île le
+ * vérifie à chaque génération.
+ */
+public final class SolverCoordinator {
+
+    /**
+     * Raison de la fin d'une résolution.
+     */
+    public enum StopReason {
+        /**
+         * Un modèle complet du portefeuille a terminé sa recherche : la meilleure tournée est optimale.
+         */
+        COMPLETED,
+        /**
+         * Le portefeuille, sans modèle complet (listes de candidats), a épuisé sa recherche sans
+         * preuve, et il ne reste ni îles ni temps de calcul pour poursuivre.
+         */
+        EXHAUSTED,
+        /**
+         * Le temps de calcul est écoulé.
+         */
+        TIME_LIMIT,
+        /**
+         * L'écart entre la meilleure tournée et la borne inférieure est dans la cible.
+         */
+        GAP,
+        /**
+         * L'arrêt a été demandé de l'extérieur ({@link SharedSolution#stopExecution()}).
+         */
+        EXTERNAL
+    }
+
+    private final ParallelPortfolio portfolio;
+    private final IslandModel islands;
+    private final SharedSolution sharedSolution;
+    private long timeLimitMillis;
+    private double targetGap = -1;
+    private long shutdownTimeoutMillis = 2000;
+    private boolean printSolutions = true;
+    private boolean completeSearch = true;
+    private volatile StopReason stopReason;
+    private long startNanos;
+    private long endNanos;
+    private boolean islandsTerminated;
+
+    /**
+     * @param portfolio      Le portefeuille préparé, dont la recherche de chaque modèle est configurée.
+     * @param islands        Les îles de l'AG (non démarrées), ou null pour la PPC seule.
+     * @param sharedSolution L'objet partagé entre la PPC et l'AG.
+     */
+    public SolverCoordinator(ParallelPortfolio portfolio, IslandModel islands, SharedSolution sharedSolution) {
+        this.portfolio = portfolio;
+        this.islands = islands;
+        this.sharedSolution = sharedSolution;
+        for (Model model : portfolio.getModels()) {
+            model.getSolver().addStopCriterion(sharedSolution::isStopped);
+        }
+    }
+
+    /**
+     * @param millis Temps de calcul maximal (0 : illimité).
+     */
+    public SolverCoordinator withTimeLimit(long millis) {
+        this.timeLimitMillis = millis;
+        return this;
+    }
+
+    /**
+     * @param gap Écart relatif (meilleure - borne) / meilleure en deçà duquel la résolution
+     *            s'arrête, par exemple 0.01 ; négatif : jusqu'à la preuve d'optimalité.
+     */
+    public SolverCoordinator withTargetGap(double gap) {
+        this.targetGap = gap;
+        return this;
+    }
+
+    /**
+     * @param millis Délai laissé aux îles pour s'arrêter avant l'interruption de leurs threads.
+     */
+    public SolverCoordinator withShutdownTimeout(long millis) {
+        this.shutdownTimeoutMillis = millis;
+        return this;
+    }
+
+    /**
+     * @param complete false si aucun modèle du portefeuille n'est complet : la fin de sa recherche
+     *                 ne prouve alors pas l'optimalité, et les îles continuent jusqu'à la fin du
+     *                 temps de calcul.
+     */
+    public SolverCoordinator withCompleteSearch(boolean complete) {
+        this.completeSearch = complete;
+        return this;
+    }
+
+    /**
+     * @param print false pour ne pas afficher l'objectif de chaque solution du portefeuille.
+     */
+    public SolverCoordinator withSolutionOutput(boolean print) {
+        this.printSolutions = print;
+        return this;
+    }
+
+    /**
+     * Exécute la résolution sur le thread appelant et rend la main une fois la PPC et l'AG arrêtés.
+     *
+     * @return La raison de l'arrêt.
+     * @throws InterruptedException Si l'attente de l'arrêt des îles est interrompue.
+     */
+    public StopReason run() throws InterruptedException {
+        startNanos = System.nanoTime();
+        Thread thread = new Thread(this::watch, "solver-watchdog");
+        thread.setDaemon(true);
+        sharedSolution.addListener(new SharedSolution.Listener() {
+            @Override
+            public void onTour(SharedSolution.Tour tour) {
+                LockSupport.unpark(thread);
+            }
+
+            @Override
+            public void onLowerBound(long bound) {
+                LockSupport.unpark(thread);
+            }
+
+            @Override
+            public void onStop() {
+                LockSupport.unpark(thread);
+            }
+        });
+        thread.start();
+        if (islands != null) {
+            islands.start();
+        }
+
+        while (!sharedSolution.isStopped()) {
+            SharedSolution.Tour before = sharedSolution.getBestTour();
+            if (portfolio.solve()) {
+                Model finder = portfolio.getBestModel();
+                if (printSolutions) {
+                    System.out.println(finder.getObjective());
+                }
+                sharedSolution.setBestDistance(finder.getObjective().asIntVar().getValue());
+            } else if (sharedSolution.getBestTour() == before) {
+                break;
+            }
+            // sinon une tournée partagée a devancé la solution d'un modèle : le portefeuille ne la
+            // compte pas comme solution et s'interrompt sans avoir terminé sa recherche
+        }
+        if (completeSearch) {
+            stop(StopReason.COMPLETED);
+        } else if (islands != null && timeLimitMillis > 0) {
+            // recherche restreinte épuisée sans preuve : l'AG garde le reste du temps de calcul
+            long remaining = startNanos + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis) - System.nanoTime();
+            thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+            stop(StopReason.TIME_LIMIT);
+        } else {
+            stop(StopReason.EXHAUSTED);
+        }
+
+        islandsTerminated = islands == null
+                || islands.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+        thread.join(shutdownTimeoutMillis);
+        endNanos = System.nanoTime();
+        return stopReason;
+    }
+
+    /**
+     * Surveille le budget ; dort jusqu'à l'échéance ou jusqu'au prochain événement.
+     */
+    private void watch() {
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis);
+        while (!sharedSolution.isStopped()) {
+            if (isGapReached()) {
+                stop(StopReason.GAP);
+            } else if (timeLimitMillis > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    stop(StopReason.TIME_LIMIT);
+                } else {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        // un arrêt demandé par un tiers n'a pas de raison enregistrée
+        stop(StopReason.EXTERNAL);
+    }
+
+    private boolean isGapReached() {
+        if (targetGap < 0) {
+            return false;
+        }
+        SharedSolution.Tour best = sharedSolution.getBestTour();
+        return best != null && getGap(best.getLength()) <= targetGap;
+    }
+
+    private double getGap(long best) {
+        return best <= 0 ? 0.0 : Math.max(0, best - sharedSolution.getLowerBound()) / (double) best;
+    }
+
+    /**
+     * Enregistre la raison d'arrêt (seule la première compte) et demande l'arrêt.
+     */
+    private synchronized void stop(StopReason reason) {
+        if (stopReason == null) {
+            stopReason = sharedSolution.isStopped()
+                    && (reason == StopReason.COMPLETED || reason == StopReason.EXHAUSTED)
+                    ? StopReason.EXTERNAL : reason;
+        }
+        sharedSolution.stopExecution();
+    }
+
+    /**
+     * @return La raison de l'arrêt, ou null pendant la résolution.
+     */
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * @return L'écart relatif entre la meilleure tournée et la borne inférieure, ou -1 sans tournée.
+     */
+    public double getGap() {
+        SharedSolution.Tour best = sharedSolution.getBestTour();
+        return best == null ? -1 : getGap(best.getLength());
+    }
+
+    /**
+     * @return La durée de la résolution en millisecondes, arrêt compris.
+     */
+    public long getElapsedMillis() {
+        return ((endNanos == 0 ? System.nanoTime() : endNanos) - startNanos) / 1_000_000;
+    }
+
+    /**
+     * @return true si les îles se sont arrêtées dans le délai d'arrêt.
+     */
+    public boolean isIslandsTerminated() {
+        return islandsTerminated;
+    }
+}
@@ -0,0 +1,236 @@
+package org.example.threadpackage;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesures du solveur, alimentées sans verrou par les threads de la PPC et de l'AG et lues
+ * périodiquement par un {@link MetricsReporter}.
+ * <p>
+ * Les compteurs sont des {@link LongAdder}, les latences des histogrammes à cases en puissances
+ * de deux ; les améliorations de la meilleure tournée (profil « anytime ») sont mises en file
+ * jusqu'au prochain export, seulement lorsqu'un rapporteur est attaché ({@link #enableImprovements()}) :
+ * sans lui, rien ne viderait la file. Les mesures de recherche de chaque modèle (nœuds, échecs, redémarrages)
+ * ne sont pas copiées ici : le rapporteur les lit directement dans les solveurs.
+ */
+public final class SolverMetrics {
+
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder gaGenerations = new LongAdder();
+    private final LongAdder cutoffs = new LongAdder();
+    private final AtomicLong gaBestLength = new AtomicLong(Long.MAX_VALUE);
+    private final LatencyHistogram tourToGa = new LatencyHistogram();
+    private final LatencyHistogram tourToCp = new LatencyHistogram();
+    private final LatencyHistogram domainAge = new LatencyHistogram();
+    private final ConcurrentLinkedQueue<Improvement> improvements = new ConcurrentLinkedQueue<>();
+    private volatile boolean improvementsEnabled;
+    private final AtomicLong lastTourToGa = new AtomicLong();
+    private final AtomicLong lastTourToCp = new AtomicLong();
+
+    /**
+     * @return L'instant de création des mesures (System.nanoTime()), origine des temps exportés.
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Met en file les améliorations suivantes jusqu'à leur lecture par {@link #pollImprovement()}.
+     */
+    public void enableImprovements() {
+        improvementsEnabled = true;
+    }
+
+    /**
+     * Enregistre une nouvelle meilleure tournée partagée ; sans effet tant que
+     * {@link #enableImprovements()} n'a pas été appelée.
+     */
+    public void recordImprovement(long length, SharedSolution.Source source) {
+        if (improvementsEnabled) {
+            improvements.add(new Improvement(System.nanoTime() - startNanos, length, source));
+        }
+    }
+
+    /**
+     * Enregistre des générations de l'AG et la meilleure longueur de la population courante.
+     */
+    public void recordGenerations(long generations, long bestLength) {
+        gaGenerations.add(generations);
+        gaBestLength.accumulateAndGet(bestLength, Math::min);
+    }
+
+    /**
+     * Enregistre le délai entre la publication d'une tournée et sa première prise en compte par
+     * l'autre partie : les prises en compte suivantes (autres îles, autres modèles) sont ignorées.
+     *
+     * @param tour     La tournée prise en compte.
+     * @param consumer Partie qui la prend en compte.
+     */
+    public void recordTourLatency(SharedSolution.Tour tour, SharedSolution.Source consumer) {
+        boolean ga = consumer == SharedSolution.Source.GA;
+        AtomicLong last = ga ? lastTourToGa : lastTourToCp;
+        long version = tour.version();
+        long seen = last.get();
+        while (version > seen) {
+            if (last.compareAndSet(seen, version)) {
+                (ga ? tourToGa : tourToCp).record(System.nanoTime() - tour.getPublishedNanos());
+                return;
+            }
+            seen = last.get();
+        }
+    }
+
+    /**
+     * Enregistre l'âge d'un domaine des arcs au moment où l'AG l'applique.
+     */
+    public void recordDomainAge(long ageNanos) {
+        domainAge.record(ageNanos);
+    }
+
+    /**
+     * Enregistre le resserrement de la borne de l'objectif d'un modèle PPC par une tournée partagée.
+     */
+    public void recordCutoff() {
+        cutoffs.increment();
+    }
+
+    public long getCutoffs() {
+        return cutoffs.sum();
+    }
+
+    public long getGaGenerations() {
+        return gaGenerations.sum();
+    }
+
+    /**
+     * @return La meilleure longueur atteinte par l'AG, ou Long.MAX_VALUE.
+     */
+    public long getGaBestLength() {
+        return gaBestLength.get();
+    }
+
+    /**
+     * @return Délais de prise en compte par l'AG des tournées publiées par la PPC.
+     */
+    public LatencyHistogram getTourToGa() {
+        return tourToGa;
+    }
+
+    /**
+     * @return Délais de prise en compte par la PPC des tournées publiées par l'AG.
+     */
+    public LatencyHistogram getTourToCp() {
+        return tourToCp;
+    }
+
+    /**
+     * @return Âges des domaines des arcs appliqués par l'AG.
+     */
+    public LatencyHistogram getDomainAge() {
+        return domainAge;
+    }
+
+    /**
+     * @return La prochaine amélioration non encore exportée, ou null.
+     */
+    public Improvement pollImprovement() {
+        return improvements.poll();
+    }
+
+    /**
+     * Amélioration de la meilleure tournée partagée.
+     */
+    public static final class Improvement {
+        private final long elapsedNanos;
+        private final long length;
+        private final SharedSolution.Source source;
+
+        private Improvement(long elapsedNanos, long length, SharedSolution.Source source) {
+            this.elapsedNanos = elapsedNanos;
+            this.length = length;
+            this.source = source;
+        }
+
+        /**
+         * @return Temps écoulé depuis le démarrage.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * @return Partie qui a trouvé la tournée.
+         */
+        public SharedSolution.Source getSource() {
+            return source;
+        }
+    }
+
+    /**
+     * Histogramme de durées sans verrou : la case k compte les valeurs de [2^k, 2^(k+1)) ns.
+     */
+    public static final class LatencyHistogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long nanos) {
+            long value = Math.max(nanos, 0);
+            buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(value | 1));
+            count.increment();
+            sum.add(value);
+            if (value > max.get()) {
+                max.accumulateAndGet(value, Math::max);
+            }
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return La moyenne en nanosecondes, ou 0 sans valeur.
+         */
+        public long getMean() {
+            long n = count.sum();
+            return n == 0 ? 0 : sum.sum() / n;
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * @param quantile Quantile entre 0 et 1.
+         * @return Borne supérieure de la case contenant ce quantile, en nanosecondes (0 sans valeur).
+         */
+        public long getQuantile(double quantile) {
+            long[] counts = new long[64];
+            long total = 0;
+            for (int k = 0; k < 64; k++) {
+                counts[k] = buckets.get(k);
+                total += counts[k];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int k = 0; k < 64; k++) {
+                seen += counts[k];
+                if (seen >= rank) {
+                    return k == 63 ? Long.MAX_VALUE : Math.min((2L << k) - 1, getMax());
+                }
+            }
+            return getMax();
+        }
+    }
+}
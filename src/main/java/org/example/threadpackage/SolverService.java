@@ -0,0 +1,517 @@
+package org.example.threadpackage;
+
+import org.chocosolver.solver.ParallelPortfolio;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service de résolution de plusieurs instances : les demandes arrivent dans un répertoire
+ * (file d'attente), sont résolues sur des ressources partagées et leurs meilleures tournées
+ * sont écrites au fil de l'eau.
+ * <p>
+ * Une demande est un fichier {@code <nom>.job} contenant les arguments de {@link LaunchOptions}
+ * (instance, temps, écart, modèles…) ; un chemin d'instance relatif l'est au répertoire de la
+ * file. Les demandes sont prises dans l'ordre d'arrivée, par déplacement atomique dans
+ * {@code running/<service>/}, puis rangées dans {@code done/}. Plusieurs services peuvent partager
+ * une file : chacun garde un verrou sur {@code running/<service>/owner.lock} tant qu'il tourne, et
+ * seules les demandes d'un répertoire dont le verrou est libre (service arrêté) sont remises dans
+ * la file au démarrage. Une demande en échec est rangée dans {@code failed/}.
+ * Les résultats de la demande sont ajoutés à {@code results/<nom>.jsonl} : une ligne
+ * {@code "event":"started"}, une ligne {@code "event":"tour"} par amélioration, puis une ligne
+ * {@code "event":"done"} (ou {@code "failed"}) avec la raison de l'arrêt, la borne et l'écart.
+ * <p>
+ * Partage des ressources :
+ * <ul>
+ *     <li>les îles de l'AG de toutes les demandes s'exécutent sur un seul pool en mode FIFO : les
+ *     époques des demandes en cours alternent ;</li>
+ *     <li>un portefeuille Choco crée ses propres threads (un par modèle) : les threads de la PPC
+ *     sont donc un budget de permis, attribués dans l'ordre des demandes (sémaphore équitable),
+ *     chaque demande en prenant autant que de modèles ;</li>
+ *     <li>au plus {@code slots} demandes sont en cours ; chacune est dimensionnée
+ *     ({@link LaunchOptions#resolve(int, int, long)}) avec sa part des cœurs et du tas.</li>
+ * </ul>
+ * Le temps de calcul d'une demande est le plus court de son {@code --time} et du maximum du
+ * service. Les points de contrôle, l'export des mesures et la décomposition ne sont pas
+ * disponibles en mode service.
+ */
+public final class SolverService implements AutoCloseable {
+
+    /**
+     * Extension des fichiers de demande.
+     */
+    public static final String JOB_EXTENSION = ".job";
+
+    private static final long POLL_MILLIS = 200;
+    private static final String OWNER_LOCK = "owner.lock";
+
+    private final Path queue;
+    private final Path running;
+    private final Path done;
+    private final Path failed;
+    private final FileChannel ownerChannel;
+    private final FileLock ownerLock;
+    private final Path results;
+    private final int slots;
+    private final int cpThreads;
+    private final int gaThreads;
+    private final long maxJobMillis;
+
+    private final ForkJoinPool gaPool;
+    private final ExecutorService jobThreads;
+    private final Semaphore admission;
+    private final Semaphore cpPermits;
+    private final Set<SharedSolution> active = ConcurrentHashMap.newKeySet();
+    private final LinkedBlockingQueue<Event> events = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+    private long completedJobs;
+
+    /**
+     * Prépare les répertoires de la file ; les demandes restées dans le répertoire d'un service
+     * arrêté sont remises dans la file.
+     *
+     * @param queue        Le répertoire de la file d'attente.
+     * @param slots        Nombre maximal de demandes résolues en même temps.
+     * @param cpThreads    Threads de la PPC, partagés par les demandes.
+     * @param gaThreads    Threads du pool de l'AG, partagé par les demandes.
+     * @param maxJobMillis Temps de calcul maximal d'une demande (0 : celui de la demande).
+     * @throws IOException Si les répertoires ne peuvent pas être créés.
+     */
+    public SolverService(Path queue, int slots, int cpThreads, int gaThreads, long maxJobMillis) throws IOException {
+        if (slots < 1 || cpThreads < 1 || gaThreads < 1) {
+            throw new IllegalArgumentException("Au moins une demande et un thread par méthode sont attendus");
+        }
+        this.queue = queue;
+        Path allRunning = Files.createDirectories(queue.resolve("running"));
+        this.running = Files.createTempDirectory(allRunning, "service-");
+        this.ownerChannel = FileChannel.open(running.resolve(OWNER_LOCK), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        this.ownerLock = ownerChannel.lock();
+        this.done = Files.createDirectories(queue.resolve("done"));
+        this.failed = Files.createDirectories(queue.resolve("failed"));
+        this.results = Files.createDirectories(queue.resolve("results"));
+        this.slots = slots;
+        this.cpThreads = cpThreads;
+        this.gaThreads = gaThreads;
+        this.maxJobMillis = maxJobMillis;
+        this.gaPool = new ForkJoinPool(gaThreads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.jobThreads = Executors.newFixedThreadPool(slots);
+        this.admission = new Semaphore(slots);
+        this.cpPermits = new Semaphore(cpThreads, true);
+        this.writer = new Thread(this::write, "service-results");
+        writer.setDaemon(true);
+        writer.start();
+        requeueOrphans(allRunning);
+    }
+
+    /**
+     * Remet dans la file les demandes des services arrêtés : ceux dont le verrou peut être pris.
+     */
+    private void requeueOrphans(Path allRunning) throws IOException {
+        List<Path> owners = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(allRunning, Files::isDirectory)) {
+            stream.forEach(owners::add);
+        }
+        for (Path owner : owners) {
+            if (owner.equals(running)) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(owner.resolve(OWNER_LOCK), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+                 FileLock lock = channel.tryLock()) {
+                if (lock == null) {
+                    continue; // service en cours
+                }
+                for (Path job : list(owner)) {
+                    Files.move(job, queue.resolve(job.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (OverlappingFileLockException e) {
+                continue; // service en cours dans cette JVM
+            } catch (NoSuchFileException e) {
+                continue; // répertoire remis en file par un autre service au même moment
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(owner)) {
+                for (Path file : stream) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(owner);
+        }
+    }
+
+    /**
+     * Prend les demandes de la file jusqu'à {@link #close()}, sur le thread appelant.
+     *
+     * @throws InterruptedException Si l'attente d'une place est interrompue.
+     */
+    public void run() throws InterruptedException {
+        while (!closed) {
+            admission.acquire();
+            Path job = closed ? null : claim();
+            if (job == null) {
+                admission.release();
+                Thread.sleep(POLL_MILLIS);
+                continue;
+            }
+            jobThreads.execute(() -> {
+                try {
+                    solve(job);
+                } finally {
+                    admission.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Déplace dans {@code running/} la plus ancienne demande de la file.
+     *
+     * @return La demande prise, ou null si la file est vide.
+     */
+    private Path claim() {
+        try {
+            for (Path job : list(queue)) {
+                try {
+                    return Files.move(job, running.resolve(job.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+                } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                    // prise entre-temps par un autre service
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * @return Les demandes du répertoire, de la plus ancienne à la plus récente.
+     */
+    private static List<Path> list(Path directory) throws IOException {
+        List<Path> jobs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + JOB_EXTENSION)) {
+            stream.forEach(jobs::add);
+        }
+        Map<Path, FileTime> modified = new HashMap<>();
+        for (Path job : jobs) {
+            modified.put(job, Files.getLastModifiedTime(job));
+        }
+        jobs.sort(Comparator.comparing(modified::get));
+        return jobs;
+    }
+
+    /**
+     * Résout une demande prise dans la file puis la range dans {@code done/}, ou dans
+     * {@code failed/} si elle échoue. Une demande interrompue par l'arrêt du service reste dans
+     * son répertoire de {@code running/} et sera reprise au redémarrage : son fichier de résultats
+     * se termine alors par un événement {@code suspended} au lieu de {@code done} ou {@code failed}.
+     */
+    private void solve(Path job) {
+        String name = job.getFileName().toString();
+        String id = name.substring(0, name.length() - JOB_EXTENSION.length());
+        boolean interrupted = false;
+        Path target = done;
+        try {
+            interrupted = solve(id, LaunchOptions.parse(Files.readString(job).trim().split("\\s+")));
+        } catch (IOException | RuntimeException e) {
+            events.add(Event.failed(id, e.toString()));
+            target = failed;
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } catch (Error e) {
+            // par exemple un manque de mémoire : la demande ne doit pas être reprise à chaque démarrage
+            e.printStackTrace();
+            events.add(Event.failed(id, e.toString()));
+            target = failed;
+        }
+        if (interrupted) {
+            events.add(Event.suspended(id));
+            return;
+        }
+        try {
+            Files.move(job, target.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        synchronized (this) {
+            completedJobs++;
+        }
+    }
+
+    /**
+     * @return true si la résolution a été interrompue par l'arrêt du service.
+     */
+    private boolean solve(String id, LaunchOptions options) throws IOException, InterruptedException {
+        Path instance = queue.resolve(options.getFile());
+        DistanceProvider distances = Main.readDistances(instance.toString());
+        if (distances == null) {
+            throw new IOException("Instance illisible : " + instance);
+        }
+        int cityCount = distances.size();
+        Runtime runtime = Runtime.getRuntime();
+        options.resolve(cityCount, Math.max(1, (cpThreads + gaThreads + slots - 1) / slots),
+                runtime.maxMemory() / slots);
+        // une demande ne peut pas attendre plus de permis que le service n'en a
+        int models = Math.min(options.getModels(), cpThreads);
+        long timeLimit = options.getTimeLimitMillis();
+        if (maxJobMillis > 0 && (timeLimit <= 0 || timeLimit > maxJobMillis)) {
+            timeLimit = maxJobMillis;
+        }
+
+        cpPermits.acquire(models);
+        SharedSolution sharedSolution = new SharedSolution();
+        active.add(sharedSolution);
+        try {
+            if (closed) {
+                return true;
+            }
+            long startNanos = System.nanoTime();
+            events.add(Event.started(id, cityCount, models, options.getCandidates()));
+            sharedSolution.addListener(new SharedSolution.Listener() {
+                @Override
+                public void onTour(SharedSolution.Tour tour) {
+                    events.add(Event.tour(id, (System.nanoTime() - startNanos) / 1_000_000, tour));
+                }
+            });
+
+            EdgeDomainStore edgeDomain = new EdgeDomainStore(cityCount);
+            ParallelPortfolio portfolio = new ParallelPortfolio(false);
+            boolean completeSearch = Main.buildPortfolio(portfolio, distances, 0, models, options.getCandidates(),
+                    options.getHeldKarpIterations(), options.getLnsFailLimit(), edgeDomain, sharedSolution);
+            IslandModel islands = new IslandModel(distances, options.getIslands(), gaPool,
+                    IslandModel.Topology.RING, options.getMigrationInterval(), edgeDomain, sharedSolution);
+            islands.enableLocalSearch(10, 0.1, 1000, 1_000_000L);
+            if (options.isVectorEvaluation()) {
+                islands.enableVectorEvaluation();
+            }
+            SolverCoordinator coordinator = new SolverCoordinator(portfolio, islands, sharedSolution)
+                    .withTimeLimit(timeLimit)
+                    .withTargetGap(options.getTargetGap())
+                    .withCompleteSearch(completeSearch)
+                    .withSolutionOutput(false);
+            SolverCoordinator.StopReason reason = coordinator.run();
+            if (closed && reason == SolverCoordinator.StopReason.EXTERNAL) {
+                return true;
+            }
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            events.add(Event.done(id, reason, elapsedMillis, sharedSolution.getBestTour(),
+                    sharedSolution.getLowerBound(), coordinator.getGap()));
+            return false;
+        } finally {
+            active.remove(sharedSolution);
+            cpPermits.release(models);
+        }
+    }
+
+    /**
+     * Écrit les événements dans les fichiers de résultats. Seul ce thread fait des entrées-sorties :
+     * les solveurs ne font que déposer leurs tournées. Parmi les tournées d'une demande en attente,
+     * seule la dernière (la meilleure) est écrite.
+     */
+    private void write() {
+        Map<String, PrintWriter> outputs = new HashMap<>();
+        List<Event> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(events.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            events.drainTo(batch);
+            Map<String, Integer> lastTour = new HashMap<>();
+            for (int e = 0; e < batch.size(); e++) {
+                if (batch.get(e).tour != null && batch.get(e).reason == null) {
+                    lastTour.put(batch.get(e).id, e);
+                }
+            }
+            for (int e = 0; e < batch.size(); e++) {
+                Event event = batch.get(e);
+                if (event == Event.END) {
+                    outputs.values().forEach(PrintWriter::close);
+                    return;
+                }
+                if (event.tour != null && event.reason == null && lastTour.get(event.id) != e) {
+                    continue;
+                }
+                PrintWriter out = outputs.computeIfAbsent(event.id, this::open);
+                if (out == null) {
+                    continue;
+                }
+                out.println(event.toJson());
+                if (event.isFinal()) {
+                    outputs.remove(event.id).close();
+                }
+            }
+            outputs.values().forEach(PrintWriter::flush);
+            batch.clear();
+        }
+    }
+
+    private PrintWriter open(String id) {
+        try {
+            return new PrintWriter(Files.newBufferedWriter(results.resolve(id + ".jsonl"), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Arrête le service : plus aucune demande n'est prise, les résolutions en cours sont arrêtées
+     * (leurs demandes restent dans {@code running/}, remises en file au prochain démarrage d'un
+     * service) et les résultats en attente sont écrits.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        active.forEach(SharedSolution::stopExecution);
+        jobThreads.shutdown();
+        try {
+            jobThreads.awaitTermination(30, TimeUnit.SECONDS);
+            gaPool.shutdown();
+            events.add(Event.END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            releaseOwnerLock();
+        }
+    }
+
+    private void releaseOwnerLock() {
+        try {
+            ownerLock.release();
+            ownerChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return Le nombre de demandes terminées (résolues ou en échec).
+     */
+    public synchronized long getCompletedJobs() {
+        return completedJobs;
+    }
+
+    /**
+     * Ligne d'un fichier de résultats.
+     */
+    private static final class Event {
+        static final Event END = new Event("", "end");
+
+        final String id;
+        final String type;
+        long elapsedMillis;
+        SharedSolution.Tour tour;
+        SolverCoordinator.StopReason reason;
+        long lowerBound;
+        double gap;
+        String detail;
+
+        private Event(String id, String type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        static Event started(String id, int cityCount, int models, int candidates) {
+            Event event = new Event(id, "started");
+            event.detail = String.format(Locale.ROOT, "\"cities\":%d,\"models\":%d,\"candidates\":%d",
+                    cityCount, models, candidates);
+            return event;
+        }
+
+        static Event tour(String id, long elapsedMillis, SharedSolution.Tour tour) {
+            Event event = new Event(id, "tour");
+            event.elapsedMillis = elapsedMillis;
+            event.tour = tour;
+            return event;
+        }
+
+        static Event done(String id, SolverCoordinator.StopReason reason, long elapsedMillis,
+                          SharedSolution.Tour tour, long lowerBound, double gap) {
+            Event event = new Event(id, "done");
+            event.reason = reason;
+            event.elapsedMillis = elapsedMillis;
+            event.tour = tour;
+            event.lowerBound = lowerBound;
+            event.gap = gap;
+            return event;
+        }
+
+        static Event failed(String id, String message) {
+            Event event = new Event(id, "failed");
+            event.detail = "\"error\":\"" + String.valueOf(message).replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+            return event;
+        }
+
+        /**
+         * Demande interrompue par l'arrêt du service et laissée dans {@code running/}.
+         */
+        static Event suspended(String id) {
+            return new Event(id, "suspended");
+        }
+
+        boolean isFinal() {
+            return reason != null || "failed".equals(type) || "suspended".equals(type);
+        }
+
+        String toJson() {
+            StringBuilder line = new StringBuilder(64 + (tour == null ? 0 : 8 * tour.size()));
+            line.append("{\"job\":\"").append(id).append("\",\"event\":\"").append(type).append('"');
+            if (detail != null) {
+                line.append(',').append(detail);
+            }
+            if (reason != null) {
+                line.append(",\"status\":\"").append(reason).append('"')
+                        .append(",\"lower_bound\":").append(lowerBound)
+                        .append(",\"gap\":").append(String.format(Locale.ROOT, "%.6f", gap));
+            }
+            if (tour != null || reason != null) {
+                line.append(",\"elapsed_ms\":").append(elapsedMillis);
+            }
+            if (tour != null) {
+                int[] order = new int[tour.size()];
+                tour.toOrder(order);
+                line.append(",\"length\":").append(tour.getLength())
+                        .append(",\"source\":\"").append(tour.getSource()).append('"')
+                        .append(",\"tour\":[");
+                for (int k = 0; k < order.length; k++) {
+                    if (k > 0) {
+                        line.append(',');
+                    }
+                    line.append(order[k]);
+                }
+                line.append(']');
+            }
+            return line.append('}').toString();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.threadpackage;
+
+/**
+ * Vue des distances restreinte à un sous-ensemble de villes, renumérotées de 0 à m - 1 :
+ * aucune matrice n'est construite, chaque distance est lue dans les distances de l'instance.
+ */
+public final class SubsetDistances implements DistanceProvider {
+
+    private final DistanceProvider distances;
+    private final int[] cities;
+    private final boolean symmetric;
+    private final boolean forbiddenEdges;
+
+    /**
+     * @param distances Les distances de l'instance.
+     * @param cities    cities[i] = la ville de l'instance numérotée i dans la vue.
+     */
+    public SubsetDistances(DistanceProvider distances, int[] cities) {
+        this.distances = distances;
+        this.cities = cities;
+        // une instance euclidienne est symétrique sans qu'il faille parcourir les couples
+        boolean euclidean = distances instanceof EuclideanDistances;
+        this.symmetric = euclidean || DistanceProvider.super.isSymmetric();
+        this.forbiddenEdges = !euclidean && DistanceProvider.super.hasForbiddenEdges();
+    }
+
+    @Override
+    public int size() {
+        return cities.length;
+    }
+
+    @Override
+    public int distance(int from, int to) {
+        return distances.distance(cities[from], cities[to]);
+    }
+
+    @Override
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    @Override
+    public boolean hasForbiddenEdges() {
+        return forbiddenEdges;
+    }
+
+    /**
+     * @return La ville de l'instance numérotée city dans la vue.
+     */
+    public int city(int city) {
+        return cities[city];
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.threadpackage;
+
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.search.strategy.selectors.variables.VariableSelector;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.Arrays;
+
+/**
+ * Heuristiques de branchement sur les variables succ tenant compte des distances.
+ * <p>
+ * La valeur choisie pour succ[i] est toujours la ville la plus proche de i encore dans son
+ * domaine. Le choix de variable dépend de l'heuristique :
+ * <ul>
+ *     <li>{@link Heuristic#NEAREST} poursuit le chemin en cours de construction : après
+ *     succ[i] = j vient succ[j], ce qui reproduit la tournée du plus proche voisin à la première
+ *     descente ;</li>
+ *     <li>{@link Heuristic#REGRET} branche d'abord la ville dont le regret (écart entre ses
+ *     deux successeurs possibles les plus proches) est le plus grand : celle qui perdrait le
+ *     plus à ne pas recevoir son meilleur successeur.</li>
+ * </ul>
+ * Utilisée par un seul solveur (un seul thread).
+ */
+public final class SuccessorSearch implements VariableSelector<IntVar>, IntValueSelector {
+
+    /**
+     * Stratégie de recherche d'un modèle PPC ({@link ModelOptions#withSearch}).
+     */
+    public enum Heuristic {
+        /**
+         * Heuristique de variable du portfolio pour ce rang, valeur minimale, guidée par la
+         * meilleure tournée partagée ({@link TourHintStrategy}).
+         */
+        TOUR_HINT,
+        /**
+         * Plus proche voisin, en suivant le chemin en construction.
+         */
+        NEAREST,
+        /**
+         * Plus grand regret d'abord, plus proche voisin ensuite.
+         */
+        REGRET
+    }
+
+    private final IntVar[] succ;
+    private final DistanceProvider distances;
+    private final Heuristic heuristic;
+    private final int[] indexById;
+    private final int minId;
+    private int last = -1;
+
+    /**
+     * @param succ      Les variables successeur du modèle.
+     * @param distances Les distances de l'instance.
+     * @param heuristic {@link Heuristic#NEAREST} ou {@link Heuristic#REGRET}.
+     */
+    public SuccessorSearch(IntVar[] succ, DistanceProvider distances, Heuristic heuristic) {
+        if (heuristic == Heuristic.TOUR_HINT) {
+            throw new IllegalArgumentException("TOUR_HINT est la stratégie du portfolio, sans SuccessorSearch");
+        }
+        this.succ = succ;
+        this.distances = distances;
+        this.heuristic = heuristic;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (IntVar var : succ) {
+            min = Math.min(min, var.getId());
+            max = Math.max(max, var.getId());
+        }
+        this.minId = min;
+        this.indexById = new int[max - min + 1];
+        Arrays.fill(indexById, -1);
+        for (int i = 0; i < succ.length; i++) {
+            indexById[succ[i].getId() - min] = i;
+        }
+    }
+
+    @Override
+    public IntVar getVariable(IntVar[] variables) {
+        if (heuristic == Heuristic.NEAREST && last >= 0 && !succ[last].isInstantiated()) {
+            return succ[last];
+        }
+        IntVar selected = null;
+        long bestRegret = -1;
+        for (int i = 0; i < succ.length; i++) {
+            IntVar var = succ[i];
+            if (var.isInstantiated()) {
+                continue;
+            }
+            if (heuristic == Heuristic.NEAREST) {
+                // début d'un nouveau chemin : la ville au plus petit domaine
+                if (selected == null || var.getDomainSize() < selected.getDomainSize()) {
+                    selected = var;
+                }
+            } else {
+                long regret = regret(i);
+                if (regret > bestRegret
+                        || regret == bestRegret && var.getDomainSize() < selected.getDomainSize()) {
+                    selected = var;
+                    bestRegret = regret;
+                }
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public int selectValue(IntVar var) {
+        int i = indexById[var.getId() - minId];
+        int ub = var.getUB();
+        int best = var.getLB();
+        int bestDistance = distances.distance(i, best);
+        for (int v = var.nextValue(best); v <= ub; v = var.nextValue(v)) {
+            int d = distances.distance(i, v);
+            if (d < bestDistance) {
+                best = v;
+                bestDistance = d;
+            }
+        }
+        last = best;
+        return best;
+    }
+
+    /**
+     * @return L'écart entre les deux successeurs possibles de i les plus proches.
+     */
+    private long regret(int i) {
+        IntVar var = succ[i];
+        int ub = var.getUB();
+        long first = Long.MAX_VALUE;
+        long second = Long.MAX_VALUE;
+        for (int v = var.getLB(); v <= ub; v = var.nextValue(v)) {
+            int d = distances.distance(i, v);
+            if (d < first) {
+                second = first;
+                first = d;
+            } else if (d < second) {
+                second = d;
+            }
+        }
+        return second - first;
+    }
+}
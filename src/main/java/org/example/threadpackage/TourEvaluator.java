@@ -0,0 +1,146 @@
+package org.example.threadpackage;
+
+/**
+ * Évaluation par lots des tournées de l'AG : un appel calcule la longueur de toute une population
+ * (ou d'une partie). Cette implémentation est scalaire et lit les distances à travers le
+ * fournisseur ; {@link #create} retourne la version vectorielle lorsqu'elle est demandée et que
+ * le module {@code jdk.incubator.vector} est chargé ({@code --add-modules jdk.incubator.vector}).
+ * <p>
+ * Les deux versions donnent exactement les longueurs de {@link PermutationEngine#length}.
+ */
+public class TourEvaluator {
+
+    /**
+     * true si le module de l'API Vector est présent au démarrage de la JVM.
+     */
+    public static final boolean VECTOR_API_AVAILABLE =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    /**
+     * Nombre de villes maximal de la version vectorielle (indices de la matrice aplatie sur un int).
+     */
+    static final int MAX_VECTOR_CITIES = 46340;
+
+    protected final DistanceProvider distances;
+
+    TourEvaluator(DistanceProvider distances) {
+        this.distances = distances;
+    }
+
+    /**
+     * @param distances  Les distances entre villes (Integer.MAX_VALUE pour un arc interdit).
+     * @param vectorized true pour utiliser l'API Vector sur une copie aplatie des distances
+     *                   (n² entiers), si elle est disponible.
+     * @return L'évaluateur, scalaire si la version vectorielle n'est pas disponible.
+     */
+    public static TourEvaluator create(DistanceProvider distances, boolean vectorized) {
+        DistanceProvider original = distances instanceof MaskedDistances masked ? masked.getDistances() : distances;
+        return create(distances, vectorized ? flatten(original) : null);
+    }
+
+    /**
+     * @param distances Les distances entre villes, éventuellement masquées ({@link MaskedDistances}).
+     * @param table     Copie aplatie des distances d'origine, partagée, ou null pour l'évaluation scalaire.
+     * @return L'évaluateur, scalaire si la version vectorielle n'est pas disponible.
+     */
+    public static TourEvaluator create(DistanceProvider distances, FlatTable table) {
+        if (table != null && table.cityCount == distances.size()) {
+            return new VectorTourEvaluator(distances, table);
+        }
+        return new TourEvaluator(distances);
+    }
+
+    /**
+     * Construit la copie aplatie des distances, à partager entre les évaluateurs de toutes les îles.
+     *
+     * @param distances Les distances d'origine, sans masque.
+     * @return La copie, ou null si la version vectorielle n'est pas disponible.
+     */
+    public static FlatTable flatten(DistanceProvider distances) {
+        if (!VECTOR_API_AVAILABLE || distances.size() > MAX_VECTOR_CITIES) {
+            return null;
+        }
+        return new FlatTable(distances);
+    }
+
+    /**
+     * Calcule la longueur des tournées tours[start..end).
+     *
+     * @param tours   Les tournées (ordres de visite).
+     * @param start   Indice de la première tournée.
+     * @param end     Indice suivant la dernière tournée.
+     * @param lengths Reçoit lengths[k] pour chaque tournée k évaluée.
+     */
+    public void evaluate(int[][] tours, int start, int end, long[] lengths) {
+        for (int k = start; k < end; k++) {
+            lengths[k] = length(tours[k]);
+        }
+    }
+
+    /**
+     * Calcule la longueur des tournées tours[indices[0..count)].
+     *
+     * @param tours   Les tournées (ordres de visite).
+     * @param indices Indices des tournées à évaluer.
+     * @param count   Nombre d'indices.
+     * @param lengths Reçoit lengths[k] pour chaque tournée k évaluée.
+     */
+    public void evaluate(int[][] tours, int[] indices, int count, long[] lengths) {
+        for (int i = 0; i < count; i++) {
+            int k = indices[i];
+            lengths[k] = length(tours[k]);
+        }
+    }
+
+    /**
+     * @return La longueur de la tournée, ou {@link PermutationEngine#INFEASIBLE} si un arc est interdit.
+     */
+    public long length(int[] tour) {
+        return PermutationEngine.length(tour, distances);
+    }
+
+    /**
+     * À appeler lorsque les distances ont changé (nouveau domaine des arcs).
+     */
+    public void onDistancesChanged() {
+    }
+
+    /**
+     * @return true si l'évaluation utilise l'API Vector.
+     */
+    public boolean isVectorized() {
+        return false;
+    }
+
+    /**
+     * Copie aplatie (n² entiers, indice from * n + to) des distances d'origine, en lecture seule.
+     * Les arcs interdits par le domaine n'y figurent pas : chaque évaluateur les lit dans le masque
+     * de son île, si bien que la copie n'est jamais reconstruite.
+     */
+    public static final class FlatTable {
+        final int cityCount;
+        final int[] distances;
+        /**
+         * true si la somme de n distances finies tient sur un int (sommes par lane).
+         */
+        final boolean overflowSafe;
+
+        private FlatTable(DistanceProvider provider) {
+            int n = provider.size();
+            this.cityCount = n;
+            this.distances = new int[n * n];
+            long maxFinite = 0;
+            for (int i = 0; i < n; i++) {
+                int row = i * n;
+                for (int j = 0; j < n; j++) {
+                    int d = provider.distance(i, j);
+                    distances[row + j] = d;
+                    if (d != Integer.MAX_VALUE) {
+                        maxFinite = Math.max(maxFinite, d);
+                    }
+                }
+            }
+            this.overflowSafe = maxFinite * n < Integer.MAX_VALUE;
+        }
+    }
+}
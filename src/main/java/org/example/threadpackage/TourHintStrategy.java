@@ -0,0 +1,89 @@
+package org.example.threadpackage;
+
+import org.chocosolver.solver.search.strategy.decision.Decision;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
+
+import java.util.Arrays;
+
+/**
+ * Méta-stratégie de recherche guidée par la meilleure tournée partagée.
+ * <p>
+ * La variable à brancher reste choisie par la stratégie configurée (par le portfolio). Lorsqu'il
+ * s'agit d'une variable succ[i] et que le successeur de i dans la meilleure tournée partagée (CP
+ * ou AG) est encore dans son domaine, la décision est remplacée par succ[i] = ce successeur.
+ * Contrairement aux indices de Choco ({@code Solver.addHint}), la tournée est relue à chaque
+ * décision : les tournées trouvées par l'AG pendant la recherche guident donc les descentes suivantes.
+ */
+public final class TourHintStrategy extends AbstractStrategy<Variable> {
+
+    private final AbstractStrategy<Variable> mainStrategy;
+    private final SharedSolution sharedSolution;
+    private final IntVar[] succ;
+    private final int[] indexById;
+    private final int minId;
+    private long seenTourVersion = 0;
+
+    /**
+     * @param mainStrategy   La stratégie fournissant les décisions.
+     * @param succ           Les variables successeur du modèle.
+     * @param sharedSolution L'objet partagé contenant la meilleure tournée.
+     */
+    public TourHintStrategy(AbstractStrategy<Variable> mainStrategy, IntVar[] succ, SharedSolution sharedSolution) {
+        super(mainStrategy.getVariables());
+        this.mainStrategy = mainStrategy;
+        this.sharedSolution = sharedSolution;
+        this.succ = succ;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (IntVar var : succ) {
+            min = Math.min(min, var.getId());
+            max = Math.max(max, var.getId());
+        }
+        this.minId = min;
+        this.indexById = new int[max - min + 1];
+        Arrays.fill(indexById, -1);
+        for (int i = 0; i < succ.length; i++) {
+            indexById[succ[i].getId() - min] = i;
+        }
+    }
+
+    @Override
+    public boolean init() {
+        return mainStrategy.init();
+    }
+
+    @Override
+    public void remove() {
+        mainStrategy.remove();
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public Decision<Variable> getDecision() {
+        Decision<Variable> decision = mainStrategy.getDecision();
+        SharedSolution.Tour tour = sharedSolution.getBestTour();
+        if (decision == null || tour == null || tour.size() != succ.length) {
+            return decision;
+        }
+        if (tour.version() != seenTourVersion) {
+            seenTourVersion = tour.version();
+            if (tour.getSource() == SharedSolution.Source.GA) {
+                sharedSolution.getMetrics().recordTourLatency(tour, SharedSolution.Source.CP);
+            }
+        }
+        Variable var = decision.getDecisionVariable();
+        int offset = var.getId() - minId;
+        if (offset < 0 || offset >= indexById.length || indexById[offset] < 0) {
+            return decision;
+        }
+        int i = indexById[offset];
+        int hint = tour.successor(i);
+        if (succ[i] == var && succ[i].contains(hint)) {
+            decision.free();
+            return (Decision) makeIntDecision(succ[i], hint);
+        }
+        return decision;
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.threadpackage;
+
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.loop.lns.neighbors.IntNeighbor;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Voisinage LNS (Large Neighbourhood Search) sur les variables succ d'un modèle PPC.
+ * <p>
+ * À chaque redémarrage, un ensemble de villes de la tournée courante est relâché (leur variable
+ * succ redevient libre) et toutes les autres sont fixées à leur successeur dans cette tournée.
+ * Les villes relâchées forment des segments consécutifs de la tournée, choisis selon une
+ * {@link Policy}. Tant qu'aucune amélioration n'est trouvée, la taille du voisinage augmente
+ * jusqu'à un maximum, puis revient à sa taille initiale.
+ * <p>
+ * Si la meilleure tournée partagée (trouvée par l'AG ou par un autre modèle) est plus courte que
+ * la tournée courante, elle est adoptée comme point de départ du voisinage suivant.
+ */
+public final class TourNeighborhood extends IntNeighbor {
+
+    /**
+     * Politique de choix des villes relâchées.
+     */
+    public enum Policy {
+        /**
+         * Segments commençant à des villes tirées au hasard.
+         */
+        RANDOM,
+        /**
+         * Une fenêtre glissant le long de la tournée, d'un demi-voisinage à chaque redémarrage.
+         */
+        SEQUENTIAL,
+        /**
+         * Segments centrés sur les arcs de la tournée les moins présents dans la population de l'AG.
+         */
+        GA_DISAGREEMENT
+    }
+
+    private static final int DISAGREEMENT_TOURNAMENT = 4;
+
+    private final int C;
+    private final Policy policy;
+    private final IntVar totDist;
+    private final SharedSolution sharedSolution;
+    private final SplittableRandom random;
+    private final int baseSize;
+    private final int maxSize;
+
+    private final boolean[] relaxed;
+    private final int[] predecessor;
+    private final int[] agreement;
+    private long incumbentLength = Long.MAX_VALUE;
+    private int size;
+    private int cursor = 0;
+
+    /**
+     * @param succ           Les variables successeur du modèle.
+     * @param totDist        La variable de longueur totale.
+     * @param policy         La politique de choix des villes relâchées.
+     * @param sharedSolution L'objet partagé contenant la meilleure tournée et la population de l'AG.
+     * @param seed           Graine du générateur aléatoire.
+     */
+    public TourNeighborhood(IntVar[] succ, IntVar totDist, Policy policy, SharedSolution sharedSolution, long seed) {
+        super(succ);
+        this.C = succ.length;
+        this.policy = policy;
+        this.totDist = totDist;
+        this.sharedSolution = sharedSolution;
+        this.random = new SplittableRandom(seed);
+        this.baseSize = Math.min(C, Math.max(6, C / 10));
+        this.maxSize = Math.max(baseSize, C / 3);
+        this.relaxed = new boolean[C];
+        this.predecessor = new int[C];
+        this.agreement = new int[C];
+        this.size = baseSize;
+    }
+
+    @Override
+    public void recordSolution() {
+        super.recordSolution();
+        incumbentLength = totDist.getValue();
+        size = baseSize;
+    }
+
+    @Override
+    public void fixSomeVariables() throws ContradictionException {
+        adoptSharedTour();
+        Arrays.fill(relaxed, false);
+        switch (policy) {
+            case SEQUENTIAL:
+                relaxSequential();
+                break;
+            case GA_DISAGREEMENT:
+                if (!relaxDisagreement()) {
+                    relaxRandom();
+                }
+                break;
+            default:
+                relaxRandom();
+                break;
+        }
+        for (int i = 0; i < C; i++) {
+            // un successeur absent du domaine (tournée adoptée hors candidats) reste libre
+            if (!relaxed[i] && variables[i].contains(values[i])) {
+                freeze(i);
+            }
+        }
+    }
+
+    /**
+     * Aucune amélioration dans le voisinage courant : il est agrandi, puis ramené à sa taille
+     * initiale une fois le maximum atteint.
+     */
+    @Override
+    public void restrictLess() {
+        size = size >= maxSize ? baseSize : size + 1;
+    }
+
+    /**
+     * Remplace la tournée courante par la meilleure tournée partagée si celle-ci est plus courte.
+     */
+    private void adoptSharedTour() {
+        SharedSolution.Tour tour = sharedSolution.getBestTour();
+        if (tour != null && tour.size() == C && tour.getLength() < incumbentLength) {
+            for (int i = 0; i < C; i++) {
+                values[i] = tour.successor(i);
+            }
+            incumbentLength = tour.getLength();
+            if (tour.getSource() == SharedSolution.Source.GA) {
+                sharedSolution.getMetrics().recordTourLatency(tour, SharedSolution.Source.CP);
+            }
+        }
+    }
+
+    private void relaxRandom() {
+        int segment = Math.max(2, size / 3);
+        int count = 0;
+        while (count < size) {
+            count += relaxSegment(random.nextInt(C), Math.min(segment, size - count));
+        }
+    }
+
+    private void relaxSequential() {
+        relaxSegment(cursor, size);
+        for (int s = 0; s < Math.max(1, size / 2); s++) {
+            cursor = values[cursor];
+        }
+    }
+
+    /**
+     * Relâche des segments de trois villes autour des arcs de la tournée courante que la population
+     * de l'AG partage le moins (sélection par tournoi, pour garder de la diversité).
+     *
+     * @return false si aucune population n'a encore été publiée.
+     */
+    private boolean relaxDisagreement() {
+        int[][] population = sharedSolution.getPopulation();
+        if (population == null || population.length == 0 || population[0].length != C) {
+            return false;
+        }
+        for (int i = 0; i < C; i++) {
+            predecessor[values[i]] = i;
+        }
+        Arrays.fill(agreement, 0);
+        for (int[] successors : population) {
+            for (int i = 0; i < C; i++) {
+                int j = values[i];
+                // arc présent dans un sens ou dans l'autre
+                if (successors[i] == j || successors[j] == i) {
+                    agreement[i]++;
+                }
+            }
+        }
+        int count = 0;
+        while (count < size) {
+            int city = random.nextInt(C);
+            for (int t = 1; t < DISAGREEMENT_TOURNAMENT; t++) {
+                int challenger = random.nextInt(C);
+                if (agreement[challenger] < agreement[city]) {
+                    city = challenger;
+                }
+            }
+            count += relaxSegment(predecessor[city], Math.min(3, size - count));
+        }
+        return true;
+    }
+
+    /**
+     * Relâche les villes du segment de la tournée courante commençant à la ville donnée.
+     *
+     * @return Le nombre de villes nouvellement relâchées.
+     */
+    private int relaxSegment(int start, int length) {
+        int added = 0;
+        int city = start;
+        for (int k = 0; k < Math.max(1, length); k++) {
+            if (!relaxed[city]) {
+                relaxed[city] = true;
+                added++;
+            }
+            city = values[city];
+        }
+        // garantit la progression lorsque le segment est déjà entièrement relâché
+        return Math.max(added, 1);
+    }
+}
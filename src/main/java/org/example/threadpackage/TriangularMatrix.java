@@ -0,0 +1,89 @@
+package org.example.threadpackage;
+
+/**
+ * Matrice des distances symétrique compactée : seul le triangle supérieur strict est conservé,
+ * soit n(n-1)/2 entiers au lieu de n² (diagonale nulle).
+ */
+public final class TriangularMatrix implements DistanceProvider {
+
+    private final int cityCount;
+    private final int[] values;
+    private final int[] rowStart;
+
+    private TriangularMatrix(int cityCount, int[] values) {
+        this.cityCount = cityCount;
+        this.values = values;
+        // values[rowStart[i] + j] est la distance (i, j) pour i < j
+        this.rowStart = new int[cityCount];
+        for (int i = 0; i < cityCount; i++) {
+            rowStart[i] = (int) ((long) i * (2L * cityCount - i - 1) / 2 - i - 1);
+        }
+    }
+
+    /**
+     * Compacte une matrice pleine, supposée symétrique à diagonale nulle.
+     *
+     * @param matrix La matrice des distances.
+     * @return La matrice compactée.
+     */
+    public static TriangularMatrix of(int[][] matrix) {
+        int n = matrix.length;
+        int[] values = allocate(n);
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                values[k++] = matrix[i][j];
+            }
+        }
+        return new TriangularMatrix(n, values);
+    }
+
+    /**
+     * Copie les distances i &lt; j d'un autre fournisseur, supposé symétrique.
+     *
+     * @param distances Le fournisseur de distances.
+     * @return La matrice compactée.
+     */
+    public static TriangularMatrix of(DistanceProvider distances) {
+        int n = distances.size();
+        int[] values = allocate(n);
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                values[k++] = distances.distance(i, j);
+            }
+        }
+        return new TriangularMatrix(n, values);
+    }
+
+    private static int[] allocate(int n) {
+        long size = (long) n * (n - 1) / 2;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Trop de villes pour une matrice triangulaire : " + n);
+        }
+        return new int[(int) size];
+    }
+
+    @Override
+    public int size() {
+        return cityCount;
+    }
+
+    @Override
+    public int distance(int from, int to) {
+        if (from == to) {
+            return 0;
+        }
+        if (from > to) {
+            int t = from;
+            from = to;
+            to = t;
+        }
+        return values[rowStart[from] + to];
+    }
+
+    @Override
+    public boolean isSymmetric() {
+        return true;
+    }
+}
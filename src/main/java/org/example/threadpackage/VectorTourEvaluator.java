@@ -0,0 +1,104 @@
+package org.example.threadpackage;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Évaluation vectorielle des tournées ({@code jdk.incubator.vector}) : les indices des arcs
+ * (from * n + to) sont calculés par vecteurs, puis les distances sont chargées par gather dans la
+ * copie aplatie partagée ({@link TourEvaluator.FlatTable}) et additionnées lane par lane. Les arcs
+ * interdits par le domaine sont lus dans les bits du masque de l'île, indexés de la même façon.
+ * <p>
+ * Ne doit être chargée que si le module est présent (voir {@link TourEvaluator#create}).
+ */
+final class VectorTourEvaluator extends TourEvaluator {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private final int cityCount;
+    private final int[] flat;
+    private final boolean overflowSafe;
+    private final int[] edges;
+    private long[] mask;
+
+    VectorTourEvaluator(DistanceProvider distances, FlatTable table) {
+        super(distances);
+        this.cityCount = table.cityCount;
+        this.flat = table.distances;
+        this.overflowSafe = table.overflowSafe;
+        this.edges = new int[cityCount];
+        onDistancesChanged();
+    }
+
+    /**
+     * Reprend le masque courant de l'île ; la copie aplatie, partagée, ne change pas.
+     */
+    @Override
+    public void onDistancesChanged() {
+        mask = distances instanceof MaskedDistances masked && masked.hasForbiddenEdges()
+                ? masked.getMask().words() : null;
+    }
+
+    @Override
+    public long length(int[] tour) {
+        // les sommes par lane et leur réduction se font sur des int
+        if (!overflowSafe || cityCount < 2) {
+            return super.length(tour);
+        }
+        int n = cityCount;
+        int lanes = SPECIES.length();
+        int k = 0;
+        for (int bound = SPECIES.loopBound(n - 1); k < bound; k += lanes) {
+            IntVector from = IntVector.fromArray(SPECIES, tour, k);
+            IntVector to = IntVector.fromArray(SPECIES, tour, k + 1);
+            from.mul(n).add(to).intoArray(edges, k);
+        }
+        for (; k < n - 1; k++) {
+            edges[k] = tour[k] * n + tour[k + 1];
+        }
+        edges[n - 1] = tour[n - 1] * n + tour[0];
+
+        IntVector sum = IntVector.zero(SPECIES);
+        VectorMask<Integer> forbidden = SPECIES.maskAll(false);
+        int e = 0;
+        for (int bound = SPECIES.loopBound(n); e < bound; e += lanes) {
+            IntVector d = IntVector.fromArray(SPECIES, flat, 0, edges, e);
+            forbidden = forbidden.or(d.eq(Integer.MAX_VALUE));
+            sum = sum.add(d);
+        }
+        if (forbidden.anyTrue() || isMasked()) {
+            return PermutationEngine.INFEASIBLE;
+        }
+        long total = sum.reduceLanesToLong(VectorOperators.ADD);
+        for (; e < n; e++) {
+            int d = flat[edges[e]];
+            if (d == Integer.MAX_VALUE) {
+                return PermutationEngine.INFEASIBLE;
+            }
+            total += d;
+        }
+        return total;
+    }
+
+    /**
+     * @return true si un arc de la tournée (dans {@code edges}) est interdit par le masque.
+     */
+    private boolean isMasked() {
+        if (mask == null) {
+            return false;
+        }
+        long allowed = -1L;
+        for (int e = 0; e < cityCount; e++) {
+            int edge = edges[e];
+            allowed &= mask[edge >>> 6] >>> edge;
+        }
+        return (allowed & 1L) == 0;
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+}